@@ -3,7 +3,10 @@ package com.voxmagic.client;
 import com.voxmagic.client.hud.ManaHudOverlay;
 import com.voxmagic.client.input.ClientPTTHandler;
 import com.voxmagic.client.network.ClientNetworkInit;
+import com.voxmagic.client.voice.VoskModelManager;
+import com.voxmagic.client.voice.VoskModelRegistry;
 import net.fabricmc.api.ClientModInitializer;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
 import com.voxmagic.client.command.MicCommand;
 import com.voxmagic.client.command.DebugCommand;
 
@@ -15,5 +18,10 @@ public class VoxMagicModeClient implements ClientModInitializer {
         ManaHudOverlay.register();
         MicCommand.register();
         DebugCommand.register();
+        VoskModelManager.prepareAsync(VoskModelRegistry.active());
+        ClientLifecycleEvents.CLIENT_STOPPING.register(client -> {
+            ClientPTTHandler.shutdown();
+            VoskModelRegistry.close();
+        });
     }
 }
@@ -1,6 +1,7 @@
 package com.voxmagic.client.command;
 
 import com.mojang.brigadier.arguments.BoolArgumentType;
+import com.voxmagic.client.voice.VoiceStats;
 import com.voxmagic.common.config.ModConfig;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
 import net.minecraft.text.Text;
@@ -21,6 +22,12 @@ public final class DebugCommand {
                     ctx.getSource().sendFeedback(Text.literal("\u041e\u0442\u043b\u0430\u0434\u043e\u0447\u043d\u044b\u0439 \u0447\u0430\u0442 VoxMagic: " + (newValue ? "\u0412\u041a\u041b" : "\u0412\u042b\u041a\u041b")));
                     return 1;
                 })
+                .then(literal("stats").executes(ctx -> {
+                    for (String line : VoiceStats.describe()) {
+                        ctx.getSource().sendFeedback(Text.literal("[VoxMagic] " + line));
+                    }
+                    return 1;
+                }))
                 .then(argument("enabled", BoolArgumentType.bool()).executes(ctx -> {
                     boolean enabled = BoolArgumentType.getBool(ctx, "enabled");
                     ModConfig.INSTANCE.voice.debug_chat = enabled;
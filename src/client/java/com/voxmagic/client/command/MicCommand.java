@@ -1,7 +1,10 @@
 package com.voxmagic.client.command;
 
 import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.arguments.StringArgumentType;
 import com.voxmagic.client.voice.MicSelector;
+import com.voxmagic.client.voice.ModelSpec;
+import com.voxmagic.client.voice.VoskModelRegistry;
 import com.voxmagic.common.config.ModConfig;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
 import net.minecraft.text.Text;
@@ -38,6 +41,56 @@ public final class MicCommand {
                         ctx.getSource().sendFeedback(Text.literal("\u0412\u044b\u0431\u0440\u0430\u043d \u043c\u0438\u043a\u0440\u043e\u0444\u043e\u043d: " + chosen.name()));
                         return 1;
                     })))
+                .then(literal("model")
+                    .executes(ctx -> {
+                        ctx.getSource().sendFeedback(Text.literal("\u041c\u043e\u0434\u0435\u043b\u0438 \u0440\u0430\u0441\u043f\u043e\u0437\u043d\u0430\u0432\u0430\u043d\u0438\u044f (* \u2014 \u0430\u043a\u0442\u0438\u0432\u043d\u0430\u044f, + \u2014 \u0432\u0442\u043e\u0440\u0430\u044f):"));
+                        for (String line : VoskModelRegistry.describe()) {
+                            ctx.getSource().sendFeedback(Text.literal(line));
+                        }
+                        return 1;
+                    })
+                    .then(argument("id", StringArgumentType.string())
+                        .suggests((ctx, builder) -> {
+                            for (ModelSpec spec : VoskModelRegistry.specs()) {
+                                builder.suggest(spec.id());
+                            }
+                            return builder.buildFuture();
+                        })
+                        .executes(ctx -> {
+                            String id = StringArgumentType.getString(ctx, "id");
+                            ModelSpec spec = VoskModelRegistry.spec(id);
+                            if (spec == null) {
+                                ctx.getSource().sendError(Text.literal("\u041d\u0435\u0438\u0437\u0432\u0435\u0441\u0442\u043d\u0430\u044f \u043c\u043e\u0434\u0435\u043b\u044c: " + id));
+                                return 0;
+                            }
+                            VoskModelRegistry.setActive(spec);
+                            ctx.getSource().sendFeedback(Text.literal("\u0417\u0430\u0433\u0440\u0443\u0436\u0430\u0435\u0442\u0441\u044f \u043c\u043e\u0434\u0435\u043b\u044c: " + spec.id() + " [" + spec.language() + "]"));
+                            return 1;
+                        })))
+                .then(literal("dual")
+                    .then(literal("off").executes(ctx -> {
+                        VoskModelRegistry.setSecondary(null);
+                        ctx.getSource().sendFeedback(Text.literal("\u0414\u0432\u0443\u044f\u0437\u044b\u0447\u043d\u043e\u0435 \u0440\u0430\u0441\u043f\u043e\u0437\u043d\u0430\u0432\u0430\u043d\u0438\u0435 \u0432\u044b\u043a\u043b\u044e\u0447\u0435\u043d\u043e"));
+                        return 1;
+                    }))
+                    .then(argument("id", StringArgumentType.string())
+                        .suggests((ctx, builder) -> {
+                            for (ModelSpec spec : VoskModelRegistry.specs()) {
+                                builder.suggest(spec.id());
+                            }
+                            return builder.buildFuture();
+                        })
+                        .executes(ctx -> {
+                            String id = StringArgumentType.getString(ctx, "id");
+                            ModelSpec spec = VoskModelRegistry.spec(id);
+                            if (spec == null) {
+                                ctx.getSource().sendError(Text.literal("\u041d\u0435\u0438\u0437\u0432\u0435\u0441\u0442\u043d\u0430\u044f \u043c\u043e\u0434\u0435\u043b\u044c: " + id));
+                                return 0;
+                            }
+                            VoskModelRegistry.setSecondary(spec);
+                            ctx.getSource().sendFeedback(Text.literal("\u0412\u0442\u043e\u0440\u0430\u044f \u043c\u043e\u0434\u0435\u043b\u044c: " + spec.id() + " [" + spec.language() + "]"));
+                            return 1;
+                        })))
             );
         });
     }
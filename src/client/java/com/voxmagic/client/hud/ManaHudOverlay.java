@@ -8,17 +8,24 @@ import net.minecraft.client.gui.DrawContext;
 import net.minecraft.client.render.RenderTickCounter;
 
 public final class ManaHudOverlay {
-    private static int mana = 100, max = 100, cooldown = 0; private static double regen = 5.0;
-    private static long lastUpdateMs = System.currentTimeMillis();
+    private static int max = 100, regen = 5, cooldown = 0;
+    private static long manaFixed = 100L * NetworkInit.MANA_SCALE;
+    /** Client world time of the last state packet; world time follows server ticks, unlike the wall clock. */
+    private static long stateTick = 0L;
 
     @SuppressWarnings("deprecation")
     public static void register() {
         HudRenderCallback.EVENT.register(ManaHudOverlay::render);
     }
 
-    public static void onSync(NetworkInit.ManaSyncPayload p) {
-        mana = p.mana; max = p.max; cooldown = p.cooldownTicks; regen = p.regenPerSec;
-        lastUpdateMs = System.currentTimeMillis();
+    public static void onParams(NetworkInit.ManaParamsPayload p) {
+        max = p.max; regen = p.regenPerSec;
+    }
+
+    public static void onState(NetworkInit.ManaStatePayload p) {
+        manaFixed = p.manaFixed; cooldown = p.cooldownTicks;
+        var world = MinecraftClient.getInstance().world;
+        stateTick = world == null ? 0L : world.getTime();
     }
 
     private static void render(DrawContext ctx, RenderTickCounter tickCounter) {
@@ -43,9 +50,9 @@ public final class ManaHudOverlay {
             return;
         }
 
-        long dt = System.currentTimeMillis() - lastUpdateMs;
-        int add = (int) Math.floor((regen * dt / 1000.0));
-        int pmana = Math.min(max, mana + Math.max(0, add));
+        long elapsed = mc.world == null ? 0L : Math.max(0L, mc.world.getTime() - stateTick);
+        int pmana = (int) (NetworkInit.regenMana(manaFixed, elapsed, max, regen) / NetworkInit.MANA_SCALE);
+        boolean onCooldown = elapsed < cooldown;
 
         int width = 182;
         int height = 5;
@@ -55,7 +62,7 @@ public final class ManaHudOverlay {
         int bg = 0x66000000;
         ctx.fill(x, y, x + width, y + height, bg);
         int w = (int) (width * (pmana / (float) max));
-        int color = cooldown > 0 ? 0x88AAAAAA : 0xFF3AA3FF;
+        int color = onCooldown ? 0x88AAAAAA : 0xFF3AA3FF;
         ctx.fill(x, y, x + w, y + height, color);
     }
 }
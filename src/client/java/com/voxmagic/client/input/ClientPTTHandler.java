@@ -1,6 +1,9 @@
 package com.voxmagic.client.input;
 
 import com.voxmagic.VoxMagicMode;
+import com.voxmagic.client.network.ClientSpellTable;
+import com.voxmagic.client.voice.VoiceStats;
+import com.voxmagic.client.voice.VoskBindings;
 import com.voxmagic.common.config.ModConfig;
 import com.voxmagic.content.ModItems;
 import com.voxmagic.network.NetworkInit;
@@ -14,13 +17,21 @@ public final class ClientPTTHandler {
     private static boolean listening = false;
     private static boolean usingDummySpeech = false;
     private static boolean warnedDummyFallback = false;
-    private static long nonceCounter = 1;
+    private static int nonceCounter = 1;
     private static long lastSentMs = 0;
+    private static long restartAtMs = 0;
+    private static final long RESTART_DELAY_MS = 1000L;
 
     public static void register() {
         ClientTickEvents.END_CLIENT_TICK.register(mc -> tick(mc));
     }
 
+    /** Stops the recognizer before its models are freed on client shutdown. */
+    public static void shutdown() {
+        listening = false;
+        speech.shutdown();
+    }
+
     private static void tick(MinecraftClient mc) {
         if (mc == null) {
             if (listening) { speech.stop(); listening = false; }
@@ -42,65 +53,74 @@ public final class ClientPTTHandler {
             if (listening) { speech.stop(); listening = false; }
             return;
         }
-        if (!listening) {
+        if (listening && !speech.isActive()) {
+            listening = false;
+            restartAtMs = System.currentTimeMillis() + RESTART_DELAY_MS;
+        }
+        if (!listening && System.currentTimeMillis() >= restartAtMs) {
             listening = true;
-            speech.startOnce(result -> {
-                try {
-                    mc.execute(() -> {
-                        var networkHandler = mc.getNetworkHandler();
-                        var executingPlayer = mc.player;
-                        if (networkHandler == null || executingPlayer == null) return;
-                        String transcript = result.transcript();
-                        String spellId = result.matchedSpellId();
-                        if (spellId == null || spellId.isEmpty()) {
-                            if (ModConfig.INSTANCE.voice.debug_chat && transcript != null && !transcript.isBlank()) {
-                                VoxMagicMode.LOGGER.info("Transcript '{}' had no spell match", transcript);
-                                System.out.println("[VoxMagic] no spell match for: " + transcript);
-                                executingPlayer.sendMessage(Text.literal("[VoxMagic] " + transcript + " (\u043d\u0435\u0442 \u0441\u043e\u0432\u043f\u0430\u0434\u0435\u043d\u0438\u044f)"), false);
-                            }
-                            return;
-                        }
-                        boolean debug = ModConfig.INSTANCE.voice.debug_chat;
-                        if (debug) {
-                            VoxMagicMode.LOGGER.info("Triggering spell '{}' from transcript '{}'", spellId, transcript);
-                            System.out.println("[VoxMagic] sending spell: " + spellId + " (" + transcript + ")");
-                            String shown = transcript == null || transcript.isBlank() ? "(\u0442\u0438\u0448\u0438\u043d\u0430)" : transcript;
-                            executingPlayer.sendMessage(Text.literal("[VoxMagic] " + shown + " -> " + spellId), false);
-                        }
+            speech.startStreaming(ClientPTTHandler::onResult);
+        }
+    }
 
-                        long now = System.currentTimeMillis();
-                        long minInterval = (long) (ModConfig.INSTANCE.global_cooldown_sec * 1000L);
-                        if (now - lastSentMs < minInterval) {
-                            VoxMagicMode.LOGGER.info("Voice spell '{}' blocked by cooldown", spellId);
-                            if (debug) {
-                                executingPlayer.sendMessage(Text.literal("[VoxMagic] \u041f\u0435\u0440\u0435\u0437\u0430\u0440\u044f\u0434\u043a\u0430: \u0437\u0430\u043a\u043b\u0438\u043d\u0430\u043d\u0438\u0435 \u043d\u0435 \u043e\u0442\u043f\u0440\u0430\u0432\u043b\u0435\u043d\u043e"), false);
-                            }
-                            return;
-                        }
-                        lastSentMs = now;
+    private static void onResult(SpeechInputService.Result result) {
+        MinecraftClient mc = MinecraftClient.getInstance();
+        mc.execute(() -> {
+            var networkHandler = mc.getNetworkHandler();
+            var executingPlayer = mc.player;
+            if (networkHandler == null || executingPlayer == null) return;
+            String transcript = result.transcript();
+            String spellId = result.matchedSpellId();
+            if (spellId == null || spellId.isEmpty()) {
+                if (ModConfig.INSTANCE.voice.debug_chat && transcript != null && !transcript.isBlank()) {
+                    VoxMagicMode.LOGGER.info("Transcript '{}' had no spell match", transcript);
+                    System.out.println("[VoxMagic] no spell match for: " + transcript);
+                    executingPlayer.sendMessage(Text.literal("[VoxMagic] " + transcript + " (\u043d\u0435\u0442 \u0441\u043e\u0432\u043f\u0430\u0434\u0435\u043d\u0438\u044f)"), false);
+                }
+                return;
+            }
+            boolean debug = ModConfig.INSTANCE.voice.debug_chat;
+            if (debug) {
+                VoxMagicMode.LOGGER.info("Triggering spell '{}' from transcript '{}'", spellId, transcript);
+                System.out.println("[VoxMagic] sending spell: " + spellId + " (" + transcript + ")");
+                String shown = transcript == null || transcript.isBlank() ? "(\u0442\u0438\u0448\u0438\u043d\u0430)" : transcript;
+                executingPlayer.sendMessage(Text.literal("[VoxMagic] " + shown + " -> " + spellId), false);
+            }
 
-                        long nonce = nonceCounter++;
-                        ClientPlayNetworking.send(new NetworkInit.SpellCastPayload(executingPlayer.getUuid(), spellId, transcript, now, nonce));
-                    });
-                } finally {
-                    listening = false;
+            long now = System.currentTimeMillis();
+            long minInterval = (long) (ModConfig.INSTANCE.global_cooldown_sec * 1000L);
+            if (now - lastSentMs < minInterval) {
+                VoxMagicMode.LOGGER.info("Voice spell '{}' blocked by cooldown", spellId);
+                if (debug) {
+                    executingPlayer.sendMessage(Text.literal("[VoxMagic] \u041f\u0435\u0440\u0435\u0437\u0430\u0440\u044f\u0434\u043a\u0430: \u0437\u0430\u043a\u043b\u0438\u043d\u0430\u043d\u0438\u0435 \u043d\u0435 \u043e\u0442\u043f\u0440\u0430\u0432\u043b\u0435\u043d\u043e"), false);
                 }
-            });
-        }
+                return;
+            }
+            int spell = ClientSpellTable.idOf(spellId);
+            if (spell < 0) {
+                VoxMagicMode.LOGGER.info("Spell '{}' is not known to this server", spellId);
+                return;
+            }
+            lastSentMs = now;
+
+            String attached = ClientSpellTable.wantsTranscript() && transcript != null ? transcript : null;
+            ClientPlayNetworking.send(new NetworkInit.SpellCastPayload(spell, nonceCounter++, attached));
+            if (result.speechEndNanos() != 0L) {
+                VoiceStats.recordSendLatency(System.nanoTime() - result.speechEndNanos());
+            }
+        });
     }
 
 
     private static SpeechInputService createSpeech() {
-        try {
-            Class.forName("org.vosk.Model");
+        if (VoskBindings.isAvailable()) {
             usingDummySpeech = false;
             warnedDummyFallback = false;
             return new VoskSpeechInputService();
-        } catch (Throwable t) {
-            usingDummySpeech = true;
-            VoxMagicMode.LOGGER.warn("Vosk runtime unavailable; falling back to dummy speech", t);
-            return new DummySpeechInputService();
         }
+        usingDummySpeech = true;
+        VoxMagicMode.LOGGER.warn("Vosk runtime unavailable; falling back to dummy speech");
+        return new DummySpeechInputService();
     }
 }
 
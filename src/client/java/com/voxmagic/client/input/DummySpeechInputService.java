@@ -6,25 +6,32 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 
 public final class DummySpeechInputService implements SpeechInputService {
     private final ExecutorService exec = Executors.newSingleThreadExecutor(r -> new Thread(r, "VoxDummySpeech"));
-    private volatile boolean running = false;
+    private volatile Future<?> task;
 
     @Override
-    public void startOnce(Consumer<Result> callback) {
-        running = true;
-        exec.submit(() -> {
-            try { Thread.sleep(500); } catch (InterruptedException ignored) {}
-            if (!running) return;
-            String transcript = System.getProperty("voxmagic.test_phrase", "");
-            String matched = match(transcript);
-            callback.accept(new Result(transcript, matched));
-            running = false;
+    public void startStreaming(Consumer<Result> listener) {
+        stop();
+        task = exec.submit(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try { Thread.sleep(500); } catch (InterruptedException ignored) { return; }
+                String transcript = System.getProperty("voxmagic.test_phrase", "");
+                if (transcript.isEmpty()) continue;
+                listener.accept(new Result(transcript, match(transcript)));
+            }
         });
     }
 
+    @Override
+    public boolean isActive() {
+        Future<?> current = task;
+        return current != null && !current.isDone();
+    }
+
     private static String match(String transcript) {
         if (transcript == null) return null;
         String t = transcript.trim().toLowerCase(Locale.ROOT);
@@ -37,5 +44,7 @@ public final class DummySpeechInputService implements SpeechInputService {
     }
 
     @Override
-    public void stop() { running = false; }
+    public void stop() {
+        if (task != null) task.cancel(true);
+    }
 }
@@ -3,7 +3,22 @@ package com.voxmagic.client.input;
 import java.util.function.Consumer;
 
 public interface SpeechInputService {
-    void startOnce(Consumer<Result> callback);
+    /** Keeps one microphone line and recognizer open until {@link #stop()}, emitting every utterance. */
+    void startStreaming(Consumer<Result> listener);
+    boolean isActive();
     void stop();
-    record Result(String transcript, String matchedSpellId) {}
+    /** Stops listening for good and waits for the recognizer to let go of its models. */
+    default void shutdown() {
+        stop();
+    }
+    /**
+     * One recognized utterance. {@code confidence} is the lowest word confidence Vosk reported
+     * ({@code NaN} when unknown); {@code speechEndNanos} is the {@link System#nanoTime()} at
+     * which the last voiced audio of the utterance was read, or {@code 0} when unknown.
+     */
+    record Result(String transcript, String matchedSpellId, float confidence, long speechEndNanos) {
+        public Result(String transcript, String matchedSpellId) {
+            this(transcript, matchedSpellId, Float.NaN, 0L);
+        }
+    }
 }
@@ -1,26 +1,28 @@
 package com.voxmagic.client.input;
 
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import com.voxmagic.VoxMagicMode;
+import com.voxmagic.client.voice.AudioCapture;
 import com.voxmagic.client.voice.MicSelector;
-import com.voxmagic.client.voice.VoskModelManager;
+import com.voxmagic.client.voice.ModelSpec;
+import com.voxmagic.client.voice.PhraseGrammar;
+import com.voxmagic.client.voice.RecognitionSession;
+import com.voxmagic.client.voice.Resampler;
+import com.voxmagic.client.voice.VoicePipeline;
+import com.voxmagic.client.voice.VoiceStats;
+import com.voxmagic.client.voice.VoskModelRegistry;
 import com.voxmagic.common.config.ModConfig;
+import com.voxmagic.common.voice.PhraseText;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.text.Text;
 
 import javax.sound.sampled.*;
-import java.lang.reflect.Method;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
-import java.util.HashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 public final class VoskSpeechInputService implements SpeechInputService {
@@ -30,36 +32,46 @@ public final class VoskSpeechInputService implements SpeechInputService {
         } catch (Throwable ignored) {}
     }
 
-    private static final Charset CP866 = Charset.forName("IBM866");
-    private static final Charset CP1251 = Charset.forName("windows-1251");
-    private static final List<Charset> FALLBACK_ENCODINGS = List.of(CP866, CP1251);
-
-    private static final Map<String, String> CANONICAL_DICT = buildCanonicalDict();
-
     private static final long MIC_ERROR_COOLDOWN_MS = 5000L;
+    private static final long SHUTDOWN_TIMEOUT_MS = 2000L;
     private static volatile long lastMicErrorMs = 0L;
 
     private final ExecutorService exec = Executors.newSingleThreadExecutor(r -> new Thread(r, "VoxVoskSpeech"));
     private volatile Future<?> task;
+    private volatile VoicePipeline current;
+    private volatile boolean switchRequested = false;
+
+    public VoskSpeechInputService() {
+        VoskModelRegistry.warmUpAsync();
+        VoskModelRegistry.addSwitchListener(this::onModelSwitched);
+    }
 
     @Override
-    public void startOnce(Consumer<Result> callback) {
+    public void startStreaming(Consumer<Result> listener) {
         stop();
-        task = exec.submit(() -> runOnce(callback));
+        long requestedAt = System.nanoTime();
+        task = exec.submit(() -> runStreaming(listener, requestedAt));
     }
 
-    private void runOnce(Consumer<Result> callback) {
-        try {
-            var path = VoskModelManager.ensureModelExtracted();
-            VoxMagicMode.LOGGER.info("Preparing Vosk recognizer with model at {}", path);
-            System.out.println("[VoxMagic] Loading Vosk model from: " + path);
+    /** Restarts the running session on the newly active model without closing the mic. */
+    private void onModelSwitched() {
+        switchRequested = true;
+        VoicePipeline pipeline = current;
+        if (pipeline != null) {
+            pipeline.stop();
+        }
+    }
 
-            try {
-                Class<?> lib = Class.forName("org.vosk.LibVosk");
-                Method setLogLevel = lib.getMethod("setLogLevel", int.class);
-                setLogLevel.invoke(null, 0);
-            } catch (Throwable ignored) {}
+    @Override
+    public boolean isActive() {
+        Future<?> current = task;
+        return current != null && !current.isDone();
+    }
 
+    private void runStreaming(Consumer<Result> listener, long requestedAt) {
+        List<VoskModelRegistry.Lease> leases = new ArrayList<>();
+        try {
+            acquireModels(leases);
             int configuredRate = Math.max(8000, ModConfig.INSTANCE.voice.sample_rate);
             List<AudioFormat> formats = buildAudioFormats(configuredRate);
             try (TargetDataLine line = MicSelector.openPreferred(formats, ModConfig.INSTANCE.voice.mic_device)) {
@@ -71,92 +83,62 @@ public final class VoskSpeechInputService implements SpeechInputService {
                 VoxMagicMode.LOGGER.info("Opened microphone '{}' with buffer size {} at {} Hz", line.getLineInfo(), line.getBufferSize(), displayRate);
                 System.out.println("[VoxMagic] Listening on mic: " + line.getLineInfo() + " @ " + displayRate + " Hz");
 
-                Class<?> modelClz = Class.forName("org.vosk.Model");
-                Object model = modelClz.getConstructor(String.class).newInstance(path.toString());
-                try {
-                    Class<?> recClz = Class.forName("org.vosk.Recognizer");
-                    Object rec;
-                    float recognizerRate = lineSampleRate;
-                    try {
-                        rec = recClz.getConstructor(modelClz, float.class).newInstance(model, recognizerRate);
-                    } catch (NoSuchMethodException ignored) {
+                int frameSamples = VoicePipeline.frameSamples(lineSampleRate);
+                long samplesTotal = 0L;
+                try (AudioCapture capture = AudioCapture.start(line, lineSampleRate, frameSamples)) {
+                    boolean firstSession = true;
+                    while (true) {
+                        List<RecognitionSession> sessions = new ArrayList<>();
                         try {
-                            rec = recClz.getConstructor(modelClz, double.class).newInstance(model, (double) recognizerRate);
-                        } catch (NoSuchMethodException ex) {
-                            rec = recClz.getConstructor(modelClz, int.class).newInstance(model, Math.round(recognizerRate));
-                        }
-                    }
-                    Method accept = recClz.getMethod("acceptWaveForm", byte[].class, int.class);
-                    Method getRes = recClz.getMethod("getResult");
-                    Method getFinal = recClz.getMethod("getFinalResult");
-                    Method getPartial = recClz.getMethod("getPartialResult");
-                    try {
-                        byte[] buffer = new byte[4096];
-                        long start = System.currentTimeMillis();
-                        long lastPartialLog = 0L;
-                        long bytesTotal = 0L;
-                        String finalText = null;
-                        while (!Thread.currentThread().isInterrupted()) {
-                            int n = line.read(buffer, 0, buffer.length);
-                            if (n <= 0) {
-                                VoxMagicMode.LOGGER.info("Audio read returned {} bytes (<=0)", n);
-                                System.out.println("[VoxMagic] audio read returned " + n + " bytes");
-                                break;
+                            List<VoicePipeline.Lane> lanes = new ArrayList<>();
+                            for (VoskModelRegistry.Lease lease : leases) {
+                                // A single model decodes every phrase; dual lanes each get their own script.
+                                String language = leases.size() > 1 ? lease.spec().language() : null;
+                                RecognitionSession session = RecognitionSession.open(lease.model(), Resampler.TARGET_RATE, PhraseGrammar.current(language));
+                                sessions.add(session);
+                                lanes.add(new VoicePipeline.Lane(session, language));
                             }
-                            bytesTotal += n;
-                            boolean done = (boolean) accept.invoke(rec, buffer, n);
-                            if (done) {
-                                finalText = extractText((String) getRes.invoke(rec));
-                                VoxMagicMode.LOGGER.info("Vosk produced final result after {} bytes", bytesTotal);
-                                break;
-                            } else {
-                                long nowMs = System.currentTimeMillis();
-                                if (nowMs - lastPartialLog > 400) {
-                                    String partial = extractPartial((String) getPartial.invoke(rec));
-                                    if (partial != null && !partial.isBlank()) {
-                                        partial = ensureUtf8(partial);
-                                        VoxMagicMode.LOGGER.info("Vosk partial: '{}' ({} bytes so far)", partial, bytesTotal);
-                                        if (ModConfig.INSTANCE.voice.debug_chat) {
-                                            System.out.println("[VoxMagic] partial: " + partial);
-                                        }
-                                        String partialNormalized = normalize(partial);
-                                        String partialGuess = dictionaryCandidate(partialNormalized);
-                                        if (partialGuess != null) {
-                                            VoxMagicMode.LOGGER.info("Partial matched canonically: {}", partialGuess);
-                                            finalText = partial;
-                                            break;
-                                        }
-                                    }
-                                    lastPartialLog = nowMs;
-                                }
+                            if (firstSession) {
+                                firstSession = false;
+                                long startupMs = (System.nanoTime() - requestedAt) / 1_000_000L;
+                                VoiceStats.recordListenStartup(startupMs);
+                                VoxMagicMode.LOGGER.debug("Recognizer ready {} ms after listen request", startupMs);
                             }
-                            if (System.currentTimeMillis() - start > 6000) {
-                                finalText = extractText((String) getFinal.invoke(rec));
-                                VoxMagicMode.LOGGER.info("Vosk timeout reached; requesting final result ({} bytes)", bytesTotal);
-                                break;
+                            VoicePipeline pipeline = new VoicePipeline(lanes, capture, utterance -> onUtterance(listener, utterance));
+                            current = pipeline;
+                            if (switchRequested) {
+                                pipeline.stop();
                             }
-                        }
-                        if (bytesTotal == 0) {
-                            VoxMagicMode.LOGGER.warn("No audio captured from microphone");
-                            System.out.println("[VoxMagic] WARNING: zero audio captured");
-                            if (ModConfig.INSTANCE.voice.debug_chat) {
-                                notifyClient("\u0417\u0432\u0443\u043a \u0441 \u043c\u0438\u043a\u0440\u043e\u0444\u043e\u043d\u0430 \u043d\u0435 \u043f\u043e\u043b\u0443\u0447\u0435\u043d. \u041f\u0440\u043e\u0432\u0435\u0440\u044c\u0442\u0435 \u0443\u0441\u0442\u0440\u043e\u0439\u0441\u0442\u0432\u043e \u0432\u0432\u043e\u0434\u0430 \u0438 \u0447\u0430\u0441\u0442\u043e\u0442\u0443 \u0434\u0438\u0441\u043a\u0440\u0435\u0442\u0438\u0437\u0430\u0446\u0438\u0438.");
+                            samplesTotal += pipeline.run();
+                            current = null;
+                        } finally {
+                            for (RecognitionSession session : sessions) {
+                                session.close();
                             }
                         }
-                        processResult(callback, finalText);
-                    } finally {
-                        try { recClz.getMethod("close").invoke(rec); } catch (Throwable ignored) {}
-                        line.stop();
+                        if (!switchRequested || Thread.currentThread().isInterrupted()) {
+                            break;
+                        }
+                        // Hot swap: the mic stays open; the new models were already loaded by the registry.
+                        switchRequested = false;
+                        releaseModels(leases);
+                        acquireModels(leases);
                     }
                 } finally {
-                    try { modelClz.getMethod("close").invoke(model); } catch (Throwable ignored) {}
+                    line.stop();
+                }
+                if (samplesTotal == 0) {
+                    VoxMagicMode.LOGGER.warn("No audio captured from microphone");
+                    System.out.println("[VoxMagic] WARNING: zero audio captured");
+                    if (ModConfig.INSTANCE.voice.debug_chat) {
+                        notifyClient("\u0417\u0432\u0443\u043a \u0441 \u043c\u0438\u043a\u0440\u043e\u0444\u043e\u043d\u0430 \u043d\u0435 \u043f\u043e\u043b\u0443\u0447\u0435\u043d. \u041f\u0440\u043e\u0432\u0435\u0440\u044c\u0442\u0435 \u0443\u0441\u0442\u0440\u043e\u0439\u0441\u0442\u0432\u043e \u0432\u0432\u043e\u0434\u0430 \u0438 \u0447\u0430\u0441\u0442\u043e\u0442\u0443 \u0434\u0438\u0441\u043a\u0440\u0435\u0442\u0438\u0437\u0430\u0446\u0438\u0438.");
+                    }
                 }
             }
         } catch (LineUnavailableException e) {
             VoxMagicMode.LOGGER.warn("Microphone unavailable", e);
             System.out.println("[VoxMagic] Mic error: " + e);
             notifyMicError(e.getMessage());
-            callback.accept(new Result("", null));
         } catch (Exception e) {
             VoxMagicMode.LOGGER.warn("Vosk recognition error", e);
             System.out.println("[VoxMagic] Vosk error: " + e);
@@ -165,8 +147,34 @@ public final class VoskSpeechInputService implements SpeechInputService {
                 msg = e.getClass().getSimpleName();
             }
             notifyClient("\u041e\u0448\u0438\u0431\u043a\u0430 Vosk: " + msg);
-            callback.accept(new Result("", null));
+        } finally {
+            releaseModels(leases);
+        }
+    }
+
+    /**
+     * Leases the active model and, when {@code voice.secondary_model} names a different one, the
+     * secondary for dual-language decoding. A secondary that fails to load is skipped.
+     */
+    private static void acquireModels(List<VoskModelRegistry.Lease> leases) throws IOException {
+        ModelSpec primary = VoskModelRegistry.active();
+        leases.add(VoskModelRegistry.acquire(primary));
+        ModelSpec secondary = VoskModelRegistry.secondary();
+        if (secondary != null && !secondary.id().equals(primary.id())) {
+            try {
+                leases.add(VoskModelRegistry.acquire(secondary));
+            } catch (IOException e) {
+                VoxMagicMode.LOGGER.warn("Secondary Vosk model {} unavailable; decoding with {} only", secondary.id(), primary.id(), e);
+            }
         }
+        VoxMagicMode.LOGGER.info("Decoding with {}", leases.stream().map(l -> l.spec().id()).toList());
+    }
+
+    private static void releaseModels(List<VoskModelRegistry.Lease> leases) {
+        for (VoskModelRegistry.Lease lease : leases) {
+            lease.close();
+        }
+        leases.clear();
     }
 
     private static void notifyClient(String message) {
@@ -194,21 +202,16 @@ public final class VoskSpeechInputService implements SpeechInputService {
         notifyClient("\u041c\u0438\u043a\u0440\u043e\u0444\u043e\043d \u043d\u0435\u0434\u043e\0441\0442\0443\043f\0435\043d: " + msg);
     }
 
-    private static void processResult(Consumer<Result> callback, String rawTranscript) {
-        String transcript = ensureUtf8(rawTranscript);
-        String normalized = normalize(transcript);
-        String dictionaryGuess = dictionaryCandidate(normalized);
-        String matched = dictionaryGuess != null ? dictionaryGuess : matchFromConfig(normalized);
+    private static void onUtterance(Consumer<Result> callback, VoicePipeline.Utterance utterance) {
+        String transcript = utterance.transcript();
+        String matched = utterance.spellId();
+        float confidence = utterance.confidence();
 
         boolean debug = ModConfig.INSTANCE.voice.debug_chat;
 
-        if (debug && dictionaryGuess != null) {
-            VoxMagicMode.LOGGER.info("Canonical guess: {}", dictionaryGuess);
-            System.out.println("[VoxMagic] guess: " + dictionaryGuess);
-        }
-
         if (debug) {
             if (transcript != null && !transcript.isBlank()) {
+                String normalized = PhraseText.normalize(transcript);
                 VoxMagicMode.LOGGER.info("Vosk transcript: '{}' (normalized='{}')", transcript, normalized);
                 System.out.println("[VoxMagic] transcript: " + transcript + " (" + normalized + ")");
             } else {
@@ -216,8 +219,8 @@ public final class VoskSpeechInputService implements SpeechInputService {
                 System.out.println("[VoxMagic] transcript empty");
             }
             if (matched != null) {
-                VoxMagicMode.LOGGER.info("Matched spell: {}", matched);
-                System.out.println("[VoxMagic] matched spell: " + matched);
+                VoxMagicMode.LOGGER.info("Matched spell: {} (confidence {}{})", matched, confidence, utterance.early() ? ", partial" : "");
+                System.out.println("[VoxMagic] matched spell: " + matched + " (conf " + confidence + (utterance.language() != null ? ", " + utterance.language() : "") + ")");
             } else if (transcript != null && !transcript.isBlank()) {
                 VoxMagicMode.LOGGER.info("Transcript '{}' did not match any spell", transcript);
                 System.out.println("[VoxMagic] no spell match for: " + transcript);
@@ -235,60 +238,18 @@ public final class VoskSpeechInputService implements SpeechInputService {
             mc.execute(() -> mc.player.sendMessage(Text.literal(toSend), false));
         }
 
-        callback.accept(new Result(transcript == null ? "" : transcript, matched));
-    }
-
-    private static Map<String, String> buildCanonicalDict() {
-        Map<String, String> map = new HashMap<>();
-        addAliases(map, "lightning", "\u043c\u043e\u043b\u043d\u0438\u044f", "\u043c\u043e\u043b\u043d\u0438\u0438", "lightning");
-        addAliases(map, "web", "\u043f\u0430\u0443\u0442\u0438\043d\u0430", "\u0441\u0435\u0442\u044c", "web");
-        addAliases(map, "heal", "\u043b\u0435\u0447\u0435\043d\u0438\0435", "\u0438\u0441\u0446\u0435\043b\0435\043d\0438\0435", "heal");
-        addAliases(map, "ghost", "\u043f\u0440\u0438\u0437\u0440\u0430\043a", "\u0441\u043f\u0435\u043a\u0442\u0440", "ghost");
-        addAliases(map, "wall", "\u0441\u0442\u0435\u043d\u0430", "wall");
-        addAliases(map, "fireball", "\u043e\u0433\u043e\u043d\u044c", "\u0444\u0430\u0435\u0440\u0431\u043e\u043b", "fireball");
-        addAliases(map, "slime", "\u0441\u043b\u0438\u0437\u044c", "\u043f\u043b\u0430\u0442\u0444\u043e\u0440\u043c\u0430", "slime");
-        addAliases(map, "dome", "\u043a\u0443\u043f\u043e\u043b", "\u0449\u0438\u0442", "dome");
-        addAliases(map, "shockwave", "\u0443\u0434\u0430\u0440\u043d\u0430\044f \u0432\u043e\u043b\u043d\u0430", "shockwave");
-        addAliases(map, "levitate", "\u043b\u0435\u0432\u0438\u0442\u0430\u0446\u0438\044f", "\u043f\u043e\u0434\u043d\u044f\u0442\u044c\u0441\u044f", "levitate");
-        addAliases(map, "meteor", "\u043c\u0435\u0442\u0435\u043e\u0440", "\u0437\u0432\u0435\u0437\u0434\u043d\u044b\0439 \u043f\u0430\u0434\u0435\u043d\u0438\0435", "meteor");
-        addAliases(map, "push", "\u0442\u043e\u043b\u0447\u043e\043a", "\u0440\u044b\u0432\u043e\043a", "push");
-        addAliases(map, "teleport", "\u0442\u0435\u043b\u0435\u043f\u043e\u0440\u0442", "\u043f\u0435\u0440\u0435\u043d\u043e\0441", "teleport");
-        addAliases(map, "pull", "\u043f\u0440\u0438\u0442\u044f\u0436\u0435\u043d\u0438\0435", "\u043f\u0440\u0438\u0442\u044f\u043d\u0438", "pull");
-        return Map.copyOf(map);
-    }
-
-    private static void addAliases(Map<String, String> map, String spellId, String... aliases) {
-        for (String alias : aliases) {
-            String normalized = normalize(alias);
-            if (!normalized.isEmpty()) {
-                map.putIfAbsent(normalized, spellId);
-            }
-        }
-    }
-
-    private static String matchFromConfig(String normalized) {
-        if (normalized.isEmpty()) return null;
-        String padded = " " + normalized + " ";
-        for (Map.Entry<String, List<String>> entry : ModConfig.INSTANCE.voice.phrases.entrySet()) {
-            for (String alias : entry.getValue()) {
-                String aliasNorm = normalize(alias);
-                if (aliasNorm.isEmpty()) continue;
-                if (normalized.equals(aliasNorm)) return entry.getKey();
-                if (padded.contains(" " + aliasNorm + " ")) return entry.getKey();
-            }
-        }
-        return null;
+        callback.accept(new Result(transcript == null ? "" : transcript, matched, confidence, utterance.speechEndNanos()));
     }
 
     private static List<AudioFormat> buildAudioFormats(int desiredSampleRate) {
         List<AudioFormat> formats = new ArrayList<>();
         addFormat(formats, desiredSampleRate);
+        addFormat(formats, Resampler.TARGET_RATE);
         addFormat(formats, 48000);
         addFormat(formats, 44100);
         addFormat(formats, 32000);
         addFormat(formats, 24000);
         addFormat(formats, 22050);
-        addFormat(formats, 16000);
         addFormat(formats, 11025);
         addFormat(formats, 8000);
         return formats;
@@ -304,102 +265,22 @@ public final class VoskSpeechInputService implements SpeechInputService {
         formats.add(new AudioFormat(rate, 16, 1, true, false));
     }
 
-    private static String dictionaryCandidate(String normalized) {
-        if (normalized == null || normalized.isEmpty()) return null;
-        String direct = CANONICAL_DICT.get(normalized);
-        if (direct != null) return direct;
-        String[] tokens = normalized.split(" ");
-        for (String token : tokens) {
-            direct = CANONICAL_DICT.get(token);
-            if (direct != null) return direct;
-        }
-        for (Map.Entry<String, String> entry : CANONICAL_DICT.entrySet()) {
-            if (normalized.contains(entry.getKey())) {
-                return entry.getValue();
-            }
-        }
-        return null;
-    }
-
-    private static String normalize(String input) {
-        if (input == null) return "";
-        String s = ensureUtf8(input).toLowerCase(Locale.ROOT);
-        s = s.replace('\u0451', '\u0435');
-        StringBuilder sb = new StringBuilder();
-        boolean prevSpace = false;
-        for (int i = 0; i < s.length(); i++) {
-            char c = s.charAt(i);
-            if (Character.isLetterOrDigit(c)) {
-                sb.append(c);
-                prevSpace = false;
-            } else {
-                if (!prevSpace) {
-                    sb.append(' ');
-                    prevSpace = true;
-                }
-            }
-        }
-        while (sb.length() > 0 && sb.charAt(sb.length() - 1) == ' ') {
-            sb.deleteCharAt(sb.length() - 1);
-        }
-        while (sb.length() > 0 && sb.charAt(0) == ' ') {
-            sb.deleteCharAt(0);
-        }
-        return sb.toString();
+    @Override
+    public void stop() {
+        if (task != null) task.cancel(true);
     }
 
-    private static String ensureUtf8(String input) {
-        if (input == null || input.isEmpty()) return input == null ? "" : input;
-        if (containsCyrillic(input)) return input;
-        for (Charset source : FALLBACK_ENCODINGS) {
-            try {
-                byte[] bytes = input.getBytes(source);
-                String candidate = new String(bytes, StandardCharsets.UTF_8);
-                if (containsCyrillic(candidate)) {
-                    return candidate;
-                }
-            } catch (Exception ignored) {}
-        }
+    @Override
+    public void shutdown() {
+        stop();
+        exec.shutdownNow();
         try {
-            byte[] bytes = input.getBytes(StandardCharsets.ISO_8859_1);
-            String candidate = new String(bytes, StandardCharsets.UTF_8);
-            if (containsCyrillic(candidate)) {
-                return candidate;
-            }
-        } catch (Exception ignored) {}
-        return input;
-    }
-
-    private static boolean containsCyrillic(String s) {
-        if (s == null) return false;
-        for (int i = 0; i < s.length(); i++) {
-            char c = s.charAt(i);
-            if ((c >= '\u0430' && c <= '\u044f') || c == '\u0451' || c == '\u0401') {
-                return true;
+            if (!exec.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                VoxMagicMode.LOGGER.warn("Vosk speech thread did not stop within {} ms", SHUTDOWN_TIMEOUT_MS);
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        return false;
-    }
-
-    private static String extractText(String json) {
-        return extract(json, "text");
-    }
-
-    private static String extractPartial(String json) {
-        return extract(json, "partial");
-    }
-
-    private static String extract(String json, String key) {
-        try {
-            JsonObject obj = JsonParser.parseString(json).getAsJsonObject();
-            if (obj.has(key)) return obj.get(key).getAsString();
-        } catch (Exception ignored) {}
-        return "";
-    }
-
-    @Override
-    public void stop() {
-        if (task != null) task.cancel(true);
     }
 }
 
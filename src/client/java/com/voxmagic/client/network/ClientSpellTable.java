@@ -0,0 +1,38 @@
+package com.voxmagic.client.network;
+
+import com.voxmagic.network.NetworkInit;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+/** Spell ids of the server we are connected to; empty until its table arrives. */
+public final class ClientSpellTable {
+    private static final Object2IntOpenHashMap<String> IDS = new Object2IntOpenHashMap<>();
+    private static boolean wantsTranscript = false;
+
+    static {
+        IDS.defaultReturnValue(-1);
+    }
+
+    private ClientSpellTable() {}
+
+    public static void onTable(NetworkInit.SpellTablePayload payload) {
+        IDS.clear();
+        for (int i = 0; i < payload.names.size(); i++) {
+            IDS.put(payload.names.get(i), i);
+        }
+        wantsTranscript = payload.wantsTranscript;
+    }
+
+    /** Server id of the spell called {@code name}, or -1. */
+    public static int idOf(String name) {
+        return name == null ? -1 : IDS.getInt(name);
+    }
+
+    public static boolean wantsTranscript() {
+        return wantsTranscript;
+    }
+
+    public static void clear() {
+        IDS.clear();
+        wantsTranscript = false;
+    }
+}
@@ -0,0 +1,87 @@
+package com.voxmagic.client.voice;
+
+import com.voxmagic.VoxMagicMode;
+
+import javax.sound.sampled.TargetDataLine;
+
+/**
+ * Reads the microphone on its own thread and pushes samples into a {@link PcmRingBuffer},
+ * so a slow decode step never stalls {@code line.read} and lets the JavaSound buffer overrun.
+ */
+public final class AudioCapture implements AudioSource {
+    private static final float RING_SECONDS = 2.0f;
+
+    private final TargetDataLine line;
+    private final PcmRingBuffer ring;
+    private final float sampleRate;
+    private final int frameSamples;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private AudioCapture(TargetDataLine line, float sampleRate, int frameSamples) {
+        this.line = line;
+        this.sampleRate = sampleRate;
+        this.frameSamples = frameSamples;
+        this.ring = new PcmRingBuffer(Math.round(sampleRate * RING_SECONDS));
+        this.thread = new Thread(this::run, "VoxMicCapture");
+        this.thread.setDaemon(true);
+    }
+
+    public static AudioCapture start(TargetDataLine line, float sampleRate, int frameSamples) {
+        AudioCapture capture = new AudioCapture(line, sampleRate, frameSamples);
+        capture.thread.start();
+        return capture;
+    }
+
+    @Override
+    public float sampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public int read(short[] dst, int len, long timeoutNanos) throws InterruptedException {
+        return ring.read(dst, len, timeoutNanos);
+    }
+
+    @Override
+    public long clockNanos() {
+        return System.nanoTime();
+    }
+
+    private void run() {
+        byte[] bytes = new byte[frameSamples * 2];
+        short[] samples = new short[frameSamples];
+        try {
+            while (running) {
+                int n = line.read(bytes, 0, bytes.length);
+                if (n <= 0) {
+                    if (running) {
+                        VoxMagicMode.LOGGER.info("Audio read returned {} bytes (<=0)", n);
+                    }
+                    break;
+                }
+                int count = Pcm.toShorts(bytes, n, samples);
+                int written = ring.write(samples, 0, count);
+                if (written < count) {
+                    VoiceStats.recordOverrun(count - written);
+                }
+            }
+        } catch (Throwable t) {
+            VoxMagicMode.LOGGER.warn("Microphone capture stopped", t);
+        } finally {
+            ring.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        line.stop();
+        line.flush();
+        try {
+            thread.join(500L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.voxmagic.client.voice;
+
+/**
+ * 16-bit mono audio feeding a {@link VoicePipeline}: the live microphone or a recording.
+ */
+public interface AudioSource extends AutoCloseable {
+    float sampleRate();
+
+    /**
+     * Reads up to {@code len} samples, waiting at most {@code timeoutNanos}. Returns the
+     * count read, {@code 0} on timeout, or {@code -1} once the stream has ended.
+     */
+    int read(short[] dst, int len, long timeoutNanos) throws InterruptedException;
+
+    /**
+     * Timestamp of the samples most recently read. Live sources use {@link System#nanoTime()};
+     * recordings replayed faster than real time use their position in the stream.
+     */
+    long clockNanos();
+
+    @Override
+    void close();
+}
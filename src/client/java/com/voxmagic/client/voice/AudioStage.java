@@ -0,0 +1,14 @@
+package com.voxmagic.client.voice;
+
+/**
+ * One in-place preprocessing step on 16-bit mono samples at {@link Resampler#TARGET_RATE},
+ * run by {@link AudioStageChain} before the recognizer. Implementations must not allocate in
+ * {@link #process}.
+ */
+public interface AudioStage {
+    String name();
+
+    void process(short[] samples, int len);
+
+    void reset();
+}
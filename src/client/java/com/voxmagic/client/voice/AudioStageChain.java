@@ -0,0 +1,58 @@
+package com.voxmagic.client.voice;
+
+import com.voxmagic.common.config.ModConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Preprocessing stages enabled in {@code voice} config, applied in order with per-stage
+ * timing in {@link VoiceStats}. Cleanup (DC removal, noise suppression) runs on every frame
+ * ahead of the VAD; gain runs after it, on the audio that is actually decoded.
+ */
+public final class AudioStageChain {
+    private final AudioStage[] stages;
+    private final VoiceStats.StageTimer[] timers;
+
+    private AudioStageChain(List<AudioStage> stages) {
+        this.stages = stages.toArray(new AudioStage[0]);
+        this.timers = new VoiceStats.StageTimer[this.stages.length];
+        for (int i = 0; i < this.stages.length; i++) {
+            timers[i] = VoiceStats.stageTimer(this.stages[i].name());
+        }
+    }
+
+    /** DC removal and noise suppression, for every frame before the VAD. */
+    public static AudioStageChain cleanupFromConfig(float sampleRate) {
+        ModConfig.VoiceCfg voice = ModConfig.INSTANCE.voice;
+        List<AudioStage> stages = new ArrayList<>();
+        if (voice.dc_filter) {
+            stages.add(new DcBlocker(sampleRate));
+        }
+        if (voice.noise_suppression) {
+            stages.add(new NoiseSuppressor());
+        }
+        return new AudioStageChain(stages);
+    }
+
+    /**
+     * Gain for frames past the VAD gate. Ahead of the VAD it would lift steady noise over
+     * {@code vad_rms_threshold} and hold the gate open, so it also never adapts below that level.
+     */
+    public static AudioStageChain gainFromConfig() {
+        ModConfig.VoiceCfg voice = ModConfig.INSTANCE.voice;
+        List<AudioStage> stages = new ArrayList<>();
+        if (voice.agc_enabled) {
+            stages.add(new AutoGain(voice.agc_target_rms, voice.agc_max_gain, voice.vad_rms_threshold));
+        }
+        return new AudioStageChain(stages);
+    }
+
+    public void process(short[] samples, int len) {
+        for (int i = 0; i < stages.length; i++) {
+            long start = System.nanoTime();
+            stages[i].process(samples, len);
+            timers[i].record(System.nanoTime() - start, len);
+        }
+    }
+}
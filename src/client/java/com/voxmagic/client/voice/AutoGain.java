@@ -0,0 +1,66 @@
+package com.voxmagic.client.voice;
+
+/**
+ * Block automatic gain control that pulls speech towards {@code targetRms}. Gain only adapts
+ * on blocks at least as loud as {@code gateRms} (the VAD threshold, so noise the VAD would
+ * reject is never amplified), falls quickly when the signal gets loud and rises slowly, and is
+ * ramped across each block so there are no zipper steps.
+ */
+public final class AutoGain implements AudioStage {
+    private static final double MIN_GAIN = 0.25;
+    private static final float ATTACK = 0.5f;
+    private static final float RELEASE = 0.05f;
+
+    private final double targetRms;
+    private final double maxGain;
+    private final double gateRms;
+    private float gain = 1f;
+
+    public AutoGain(double targetRms, double maxGain, double gateRms) {
+        this.targetRms = Math.max(1.0, targetRms);
+        this.maxGain = Math.max(1.0, maxGain);
+        this.gateRms = Math.max(1.0, gateRms);
+    }
+
+    @Override
+    public String name() {
+        return "agc";
+    }
+
+    @Override
+    public void process(short[] samples, int len) {
+        if (len <= 0) {
+            return;
+        }
+        long energy = 0L;
+        for (int i = 0; i < len; i++) {
+            energy += (long) samples[i] * samples[i];
+        }
+        double rms = Math.sqrt(energy / (double) len);
+        float from = gain;
+        float to = from;
+        if (rms >= gateRms) {
+            float desired = (float) Math.max(MIN_GAIN, Math.min(maxGain, targetRms / rms));
+            to = from + (desired - from) * (desired < from ? ATTACK : RELEASE);
+            if (rms * to > Short.MAX_VALUE * 0.7) {
+                to = (float) (Short.MAX_VALUE * 0.7 / rms);
+            }
+        }
+        float step = (to - from) / len;
+        float g = from;
+        for (int i = 0; i < len; i++) {
+            g += step;
+            samples[i] = Pcm.clip(samples[i] * g);
+        }
+        gain = to;
+    }
+
+    public float gain() {
+        return gain;
+    }
+
+    @Override
+    public void reset() {
+        gain = 1f;
+    }
+}
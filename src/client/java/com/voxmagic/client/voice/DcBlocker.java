@@ -0,0 +1,43 @@
+package com.voxmagic.client.voice;
+
+/**
+ * One-pole high-pass ({@code y = x - x[-1] + r * y[-1]}) that removes the DC offset some
+ * USB mics carry, which otherwise inflates the VAD energy and the AGC's level estimate.
+ */
+public final class DcBlocker implements AudioStage {
+    private static final double CUTOFF_HZ = 20.0;
+
+    private final float r;
+    private float lastIn = 0f;
+    private float lastOut = 0f;
+
+    public DcBlocker(float sampleRate) {
+        this.r = (float) Math.exp(-2 * Math.PI * CUTOFF_HZ / sampleRate);
+    }
+
+    @Override
+    public String name() {
+        return "dc";
+    }
+
+    @Override
+    public void process(short[] samples, int len) {
+        float x1 = lastIn;
+        float y1 = lastOut;
+        for (int i = 0; i < len; i++) {
+            float x = samples[i];
+            float y = x - x1 + r * y1;
+            x1 = x;
+            y1 = y;
+            samples[i] = Pcm.clip(y);
+        }
+        lastIn = x1;
+        lastOut = y1;
+    }
+
+    @Override
+    public void reset() {
+        lastIn = 0f;
+        lastOut = 0f;
+    }
+}
@@ -0,0 +1,30 @@
+package com.voxmagic.client.voice;
+
+import java.net.URI;
+import java.nio.file.Path;
+
+/**
+ * A recognizer model the client can switch to. Archive-backed specs are unpacked by
+ * {@link VoskModelManager} from {@code resourceZip} (bundled in the jar) or {@code downloadUri};
+ * specs with a {@code localDir} point at a model the player unpacked themselves.
+ */
+public record ModelSpec(String id, String language, String size, String resourceZip, URI downloadUri, String dirName, Path localDir) {
+    public static final ModelSpec RU_SMALL = new ModelSpec("ru-small", "ru", "small",
+            "/assets/voxmagic/vosk/vosk-model-small-ru.zip",
+            URI.create("https://alphacephei.com/vosk/models/vosk-model-small-ru-0.22.zip"),
+            "vosk-model-small-ru", null);
+    public static final ModelSpec EN_SMALL = new ModelSpec("en-small", "en", "small",
+            null,
+            URI.create("https://alphacephei.com/vosk/models/vosk-model-small-en-us-0.15.zip"),
+            "vosk-model-small-en-us", null);
+
+    /** A pre-extracted model from {@code voice.model_dirs}; the language is the id up to the first '-'. */
+    public static ModelSpec local(String id, Path dir) {
+        int dash = id.indexOf('-');
+        return new ModelSpec(id, dash > 0 ? id.substring(0, dash) : id, "custom", null, null, null, dir);
+    }
+
+    public boolean isLocal() {
+        return localDir != null;
+    }
+}
@@ -0,0 +1,154 @@
+package com.voxmagic.client.voice;
+
+/**
+ * Spectral-subtraction noise suppressor: 256-point frames, 50% overlap, sqrt-Hann analysis and
+ * synthesis windows (weighted overlap-add). The per-bin noise floor tracks the minimum of the
+ * smoothed spectrum and creeps up slowly, so steady fan/hum noise is learned while speech is
+ * not. Adds {@link #FRAME} samples of latency (16 ms at 16 kHz).
+ */
+public final class NoiseSuppressor implements AudioStage {
+    private static final int FRAME = 256;
+    private static final int HOP = FRAME / 2;
+    private static final int BINS = FRAME / 2 + 1;
+    private static final int LOG2_FRAME = 8;
+    private static final float OVER_SUBTRACTION = 3.0f;
+    private static final float GAIN_FLOOR = 0.1f;
+    private static final float SMOOTHING = 0.7f;
+    private static final float NOISE_RISE = 1.005f;
+    private static final float NOISE_MIN = 1f;
+    private static final int WARMUP_FRAMES = 10;
+
+    private static final float[] WINDOW = new float[FRAME];
+    private static final float[] COS = new float[FRAME / 2];
+    private static final float[] SIN = new float[FRAME / 2];
+    private static final int[] BITREV = new int[FRAME];
+
+    static {
+        for (int i = 0; i < FRAME; i++) {
+            WINDOW[i] = (float) Math.sqrt(0.5 * (1 - Math.cos(2 * Math.PI * i / FRAME)));
+            BITREV[i] = Integer.reverse(i) >>> (32 - LOG2_FRAME);
+        }
+        for (int i = 0; i < FRAME / 2; i++) {
+            COS[i] = (float) Math.cos(2 * Math.PI * i / FRAME);
+            SIN[i] = (float) -Math.sin(2 * Math.PI * i / FRAME);
+        }
+    }
+
+    private final float[] history = new float[FRAME];
+    private final float[] overlap = new float[FRAME];
+    private final float[] ready = new float[HOP];
+    private final float[] re = new float[FRAME];
+    private final float[] im = new float[FRAME];
+    private final float[] smoothed = new float[BINS];
+    private final float[] noise = new float[BINS];
+    private int pos = 0;
+    private int frames = 0;
+
+    @Override
+    public String name() {
+        return "denoise";
+    }
+
+    @Override
+    public void process(short[] samples, int len) {
+        for (int i = 0; i < len; i++) {
+            float out = ready[pos];
+            history[HOP + pos] = samples[i];
+            samples[i] = Pcm.clip(out);
+            if (++pos == HOP) {
+                pos = 0;
+                processFrame();
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        java.util.Arrays.fill(history, 0f);
+        java.util.Arrays.fill(overlap, 0f);
+        java.util.Arrays.fill(ready, 0f);
+        java.util.Arrays.fill(smoothed, 0f);
+        java.util.Arrays.fill(noise, 0f);
+        pos = 0;
+        frames = 0;
+    }
+
+    /** {@code history} holds the last {@link #FRAME} inputs; emits the next {@link #HOP} outputs. */
+    private void processFrame() {
+        for (int i = 0; i < FRAME; i++) {
+            re[i] = history[i] * WINDOW[i];
+            im[i] = 0f;
+        }
+        fft(re, im);
+        for (int k = 0; k < BINS; k++) {
+            float power = re[k] * re[k] + im[k] * im[k];
+            float ps = smoothed[k] = smoothed[k] * SMOOTHING + power * (1 - SMOOTHING);
+            float gain = 1f;
+            if (frames < WARMUP_FRAMES) {
+                noise[k] += power / WARMUP_FRAMES;
+            } else {
+                float n = noise[k];
+                noise[k] = Math.max(NOISE_MIN, ps < n ? ps : n * NOISE_RISE);
+                if (power > 0f) {
+                    float g = 1f - OVER_SUBTRACTION * n / power;
+                    gain = g > GAIN_FLOOR * GAIN_FLOOR ? (float) Math.sqrt(g) : GAIN_FLOOR;
+                } else {
+                    gain = GAIN_FLOOR;
+                }
+            }
+            re[k] *= gain;
+            im[k] *= gain;
+            if (k > 0 && k < FRAME / 2) {
+                re[FRAME - k] = re[k];
+                im[FRAME - k] = -im[k];
+            }
+        }
+        frames++;
+        // Inverse FFT via conjugation: ifft(x) = conj(fft(conj(x))) / N.
+        for (int i = 0; i < FRAME; i++) {
+            im[i] = -im[i];
+        }
+        fft(re, im);
+        float scale = 1f / FRAME;
+        for (int i = 0; i < FRAME; i++) {
+            overlap[i] += re[i] * scale * WINDOW[i];
+        }
+        System.arraycopy(overlap, 0, ready, 0, HOP);
+        System.arraycopy(overlap, HOP, overlap, 0, HOP);
+        java.util.Arrays.fill(overlap, HOP, FRAME, 0f);
+        System.arraycopy(history, HOP, history, 0, HOP);
+    }
+
+    /** In-place iterative radix-2 complex FFT of size {@link #FRAME}. */
+    private static void fft(float[] re, float[] im) {
+        for (int i = 0; i < FRAME; i++) {
+            int j = BITREV[i];
+            if (j > i) {
+                float t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+        for (int size = 2; size <= FRAME; size <<= 1) {
+            int half = size >> 1;
+            int step = FRAME / size;
+            for (int start = 0; start < FRAME; start += size) {
+                for (int k = 0; k < half; k++) {
+                    float wr = COS[k * step];
+                    float wi = SIN[k * step];
+                    int a = start + k;
+                    int b = a + half;
+                    float tr = re[b] * wr - im[b] * wi;
+                    float ti = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.voxmagic.client.voice;
+
+/** Helpers for 16-bit signed little-endian mono PCM, the only format the mic is opened with. */
+public final class Pcm {
+    private Pcm() {}
+
+    /** Converts {@code len} bytes into samples; returns the number of samples written. */
+    public static int toShorts(byte[] src, int len, short[] dst) {
+        int count = Math.min(len >> 1, dst.length);
+        for (int i = 0, b = 0; i < count; i++, b += 2) {
+            dst[i] = (short) ((src[b] & 0xFF) | (src[b + 1] << 8));
+        }
+        return count;
+    }
+
+    /** Rounds and saturates to the 16-bit range. */
+    public static short clip(float v) {
+        int r = Math.round(v);
+        return (short) (r > Short.MAX_VALUE ? Short.MAX_VALUE : (r < Short.MIN_VALUE ? Short.MIN_VALUE : r));
+    }
+}
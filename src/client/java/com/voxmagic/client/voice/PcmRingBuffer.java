@@ -0,0 +1,99 @@
+package com.voxmagic.client.voice;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Preallocated single-producer/single-consumer ring of 16-bit samples. The capture thread
+ * writes, the decode thread reads; neither takes a lock. When the reader falls behind the
+ * newest samples are dropped instead of blocking the mic; {@link #write} reports how many fit.
+ */
+public final class PcmRingBuffer {
+    private final short[] data;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private volatile Thread consumer;
+    private volatile boolean closed = false;
+
+    public PcmRingBuffer(int minCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, minCapacity) - 1) << 1;
+        this.data = new short[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /** Producer side. Returns the number of samples stored; the rest were dropped. */
+    public int write(short[] src, int off, int len) {
+        long h = head.get();
+        int free = data.length - (int) (h - tail.get());
+        int n = Math.min(len, free);
+        if (n > 0) {
+            int start = (int) (h & mask);
+            int first = Math.min(n, data.length - start);
+            System.arraycopy(src, off, data, start, first);
+            System.arraycopy(src, off + first, data, 0, n - first);
+            // full volatile store so the consumer check below cannot be reordered before it
+            head.set(h + n);
+        }
+        Thread waiting = consumer;
+        if (waiting != null) {
+            LockSupport.unpark(waiting);
+        }
+        return n;
+    }
+
+    /**
+     * Consumer side. Waits up to {@code timeoutNanos} for {@code len} samples and copies them
+     * into {@code dst}. Returns the samples read, 0 on timeout, or -1 once the producer has
+     * closed the buffer and it is drained.
+     */
+    public int read(short[] dst, int len, long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        consumer = Thread.currentThread();
+        try {
+            while (available() < len) {
+                if (closed) {
+                    break;
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return 0;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+        } finally {
+            consumer = null;
+        }
+        long t = tail.get();
+        int n = Math.min(len, (int) (head.get() - t));
+        if (n <= 0) {
+            return closed ? -1 : 0;
+        }
+        int start = (int) (t & mask);
+        int first = Math.min(n, data.length - start);
+        System.arraycopy(data, start, dst, 0, first);
+        System.arraycopy(data, 0, dst, first, n - first);
+        tail.lazySet(t + n);
+        return n;
+    }
+
+    public int available() {
+        return (int) (head.get() - tail.get());
+    }
+
+    public long totalWritten() {
+        return head.get();
+    }
+
+    /** Called by the producer when no more audio will arrive. */
+    public void close() {
+        closed = true;
+        Thread waiting = consumer;
+        if (waiting != null) {
+            LockSupport.unpark(waiting);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.voxmagic.client.voice;
+
+import com.google.gson.JsonArray;
+import com.voxmagic.common.config.ModConfig;
+import com.voxmagic.common.voice.PhraseText;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Builds the Vosk JSON grammar from {@code voice.phrases} so decoding is restricted to the
+ * spell phrases plus an {@code [unk]} garbage token. Cached until the config revision changes.
+ */
+public final class PhraseGrammar {
+    private static final String UNKNOWN_TOKEN = "[unk]";
+
+    private static final Map<String, String> cached = new HashMap<>();
+    private static int cachedRevision = -1;
+
+    private PhraseGrammar() {}
+
+    /** Returns the grammar JSON, or {@code null} when grammar decoding is disabled. */
+    public static String current() {
+        return current(null);
+    }
+
+    /**
+     * Like {@link #current()} but restricted to phrases written in {@code language}'s script
+     * ({@code "ru"}: Cyrillic, {@code "en"}: Latin); {@code null} or other languages get all phrases.
+     */
+    public static synchronized String current(String language) {
+        ModConfig cfg = ModConfig.INSTANCE;
+        if (cfg.voice == null || !cfg.voice.use_grammar) {
+            return null;
+        }
+        int revision = ModConfig.revision();
+        if (cachedRevision != revision) {
+            cached.clear();
+            cachedRevision = revision;
+        }
+        return cached.computeIfAbsent(language == null ? "" : language, key -> build(cfg.voice.phrases, language));
+    }
+
+    static String build(Map<String, List<String>> phrases, String language) {
+        TreeSet<String> unique = new TreeSet<>();
+        if (phrases != null) {
+            for (List<String> aliases : phrases.values()) {
+                if (aliases == null) continue;
+                for (String alias : aliases) {
+                    String phrase = PhraseText.normalize(alias);
+                    if (!phrase.isEmpty() && inScript(phrase, language)) {
+                        unique.add(phrase);
+                    }
+                }
+            }
+        }
+        JsonArray array = new JsonArray();
+        for (String phrase : unique) {
+            array.add(phrase);
+        }
+        array.add(UNKNOWN_TOKEN);
+        return array.toString();
+    }
+
+    private static boolean inScript(String phrase, String language) {
+        if (language == null) {
+            return true;
+        }
+        boolean cyrillic = false;
+        for (int i = 0; i < phrase.length(); i++) {
+            if (Character.UnicodeBlock.of(phrase.charAt(i)) == Character.UnicodeBlock.CYRILLIC) {
+                cyrillic = true;
+                break;
+            }
+        }
+        return switch (language) {
+            case "ru" -> cyrillic;
+            case "en" -> !cyrillic;
+            default -> true;
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package com.voxmagic.client.voice;
+
+/**
+ * One long-lived recognizer fed with a continuous audio stream. Results are returned
+ * as raw Vosk JSON; callers {@link #reset()} between utterances instead of recreating it.
+ */
+public final class RecognitionSession implements AutoCloseable {
+    private final SpeechRecognizer recognizer;
+    private String grammar;
+
+    private RecognitionSession(SpeechRecognizer recognizer, String grammar) {
+        this.recognizer = recognizer;
+        this.grammar = grammar;
+    }
+
+    /**
+     * Opens a recognizer; when {@code grammar} is non-null decoding is restricted to that
+     * JSON phrase list, which is much cheaper per frame than the full vocabulary.
+     */
+    public static RecognitionSession open(SpeechModel model, float sampleRate, String grammar) throws Exception {
+        SpeechRecognizer recognizer = model.newRecognizer(sampleRate, grammar);
+        recognizer.setWords(true);
+        recognizer.setPartialWords(true);
+        return new RecognitionSession(recognizer, grammar);
+    }
+
+    /**
+     * Switches to {@code newGrammar} if it differs from the active one. Only call between
+     * utterances, right after {@link #reset()}.
+     */
+    public void ensureGrammar(String newGrammar) {
+        if (newGrammar == null || newGrammar.equals(grammar)) {
+            return;
+        }
+        recognizer.setGrammar(newGrammar);
+        grammar = newGrammar;
+    }
+
+    /** Feeds audio; returns {@code true} when Vosk detected the end of an utterance. */
+    public boolean feed(short[] samples, int len) {
+        long start = System.nanoTime();
+        boolean done = recognizer.acceptWaveForm(samples, len);
+        VoiceStats.recordFrame(System.nanoTime() - start);
+        return done;
+    }
+
+    public String result() {
+        return recognizer.getResult();
+    }
+
+    public String partialResult() {
+        return recognizer.getPartialResult();
+    }
+
+    public String finalResult() {
+        return recognizer.getFinalResult();
+    }
+
+    public void reset() {
+        recognizer.reset();
+    }
+
+    @Override
+    public void close() {
+        recognizer.close();
+    }
+}
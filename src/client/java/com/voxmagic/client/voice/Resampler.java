@@ -0,0 +1,113 @@
+package com.voxmagic.client.voice;
+
+/**
+ * Streaming polyphase FIR resampler for 16-bit mono audio. Converts whatever rate the mic
+ * was opened at down to {@link #TARGET_RATE} so the recognizer never does feature extraction
+ * at 44.1/48 kHz. All buffers are allocated up front; {@link #process} does not allocate.
+ */
+public final class Resampler {
+    public static final int TARGET_RATE = 16000;
+
+    private static final int TAPS_PER_PHASE = 32;
+    private static final double CUTOFF_MARGIN = 0.9;
+
+    private final int up;
+    private final int down;
+    private final int taps;
+    private final float[][] phases;
+    private final float[] work;
+    private final int maxInput;
+    private int pos;
+    private int phase = 0;
+
+    public Resampler(int inRate, int outRate, int maxInput) {
+        int g = gcd(inRate, outRate);
+        this.up = outRate / g;
+        this.down = inRate / g;
+        this.maxInput = Math.max(1, maxInput);
+        if (isPassthrough()) {
+            this.taps = 1;
+            this.phases = new float[][] {{1f}};
+        } else {
+            this.taps = TAPS_PER_PHASE;
+            this.phases = design(up, down, taps);
+        }
+        this.work = new float[taps - 1 + this.maxInput];
+        this.pos = taps - 1;
+    }
+
+    public boolean isPassthrough() {
+        return up == down;
+    }
+
+    /** Upper bound on the samples {@link #process} can produce for {@code inLen} input samples. */
+    public int maxOutput(int inLen) {
+        return (int) ((long) inLen * up / down) + 2;
+    }
+
+    /** Resamples {@code inLen} samples from {@code in} into {@code out}; returns the output count. */
+    public int process(short[] in, int inLen, short[] out) {
+        if (isPassthrough()) {
+            System.arraycopy(in, 0, out, 0, inLen);
+            return inLen;
+        }
+        int produced = 0;
+        for (int off = 0; off < inLen; off += maxInput) {
+            produced += processChunk(in, off, Math.min(maxInput, inLen - off), out, produced);
+        }
+        return produced;
+    }
+
+    public void reset() {
+        java.util.Arrays.fill(work, 0f);
+        pos = taps - 1;
+        phase = 0;
+    }
+
+    private int processChunk(short[] in, int off, int len, short[] out, int outOff) {
+        int hist = taps - 1;
+        for (int i = 0; i < len; i++) {
+            work[hist + i] = in[off + i];
+        }
+        int total = hist + len;
+        int n = outOff;
+        while (pos < total) {
+            float[] coef = phases[phase];
+            float acc = 0f;
+            for (int k = 0, idx = pos; k < taps; k++, idx--) {
+                acc += coef[k] * work[idx];
+            }
+            out[n++] = Pcm.clip(acc);
+            phase += down;
+            pos += phase / up;
+            phase %= up;
+        }
+        System.arraycopy(work, total - hist, work, 0, hist);
+        pos -= len;
+        return n - outOff;
+    }
+
+    /** Blackman-windowed sinc low-pass split into {@code up} polyphase branches. */
+    private static float[][] design(int up, int down, int taps) {
+        int length = up * taps;
+        double fc = CUTOFF_MARGIN * 0.5 / Math.max(up, down);
+        double center = (length - 1) / 2.0;
+        float[][] phases = new float[up][taps];
+        for (int j = 0; j < length; j++) {
+            double x = j - center;
+            double sinc = x == 0 ? 2 * fc : Math.sin(2 * Math.PI * fc * x) / (Math.PI * x);
+            double w = 0.42 - 0.5 * Math.cos(2 * Math.PI * j / (length - 1)) + 0.08 * Math.cos(4 * Math.PI * j / (length - 1));
+            phases[j % up][j / up] = (float) (sinc * w * up);
+        }
+        return phases;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
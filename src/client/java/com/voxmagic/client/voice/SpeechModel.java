@@ -0,0 +1,12 @@
+package com.voxmagic.client.voice;
+
+import java.io.IOException;
+
+/** A loaded acoustic model that recognizers can be created from. */
+public interface SpeechModel extends AutoCloseable {
+    /** Creates a recognizer; {@code grammar} is a JSON phrase list or {@code null} for the full vocabulary. */
+    SpeechRecognizer newRecognizer(float sampleRate, String grammar) throws IOException;
+
+    @Override
+    void close();
+}
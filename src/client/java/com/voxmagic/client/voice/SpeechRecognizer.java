@@ -0,0 +1,20 @@
+package com.voxmagic.client.voice;
+
+/**
+ * Typed view of a recognizer so the per-frame audio path is a plain interface call
+ * rather than reflection.
+ */
+public interface SpeechRecognizer extends AutoCloseable {
+    boolean acceptWaveForm(short[] data, int len);
+    String getResult();
+    String getPartialResult();
+    String getFinalResult();
+    void reset();
+    void setGrammar(String grammar);
+    /** Includes per-word confidences in final ({@code result}) and partial ({@code partial_result}) JSON. */
+    void setWords(boolean words);
+    void setPartialWords(boolean partialWords);
+
+    @Override
+    void close();
+}
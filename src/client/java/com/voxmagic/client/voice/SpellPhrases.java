@@ -0,0 +1,59 @@
+package com.voxmagic.client.voice;
+
+import com.voxmagic.common.config.ModConfig;
+import com.voxmagic.common.voice.PhraseMatcher;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The spell phrase matcher used by the voice pipeline. Built-in aliases go in first and may
+ * match inside a longer word (Vosk often glues words together); config phrases must match on
+ * word boundaries. Rebuilt when the config revision changes.
+ */
+public final class SpellPhrases {
+    private static int matcherRevision = -1;
+    private static PhraseMatcher matcher;
+
+    private SpellPhrases() {}
+
+    public static synchronized PhraseMatcher matcher() {
+        int revision = ModConfig.revision();
+        if (matcher == null || matcherRevision != revision) {
+            PhraseMatcher.Builder builder = PhraseMatcher.builder();
+            addBuiltinAliases(builder);
+            for (Map.Entry<String, List<String>> entry : ModConfig.INSTANCE.voice.phrases.entrySet()) {
+                if (entry.getValue() == null) continue;
+                for (String alias : entry.getValue()) {
+                    builder.add(entry.getKey(), alias, false);
+                }
+            }
+            matcher = builder.build();
+            matcherRevision = revision;
+        }
+        return matcher;
+    }
+
+    private static void addBuiltinAliases(PhraseMatcher.Builder builder) {
+        addAliases(builder, "lightning", "\u043c\u043e\u043b\u043d\u0438\u044f", "\u043c\u043e\u043b\u043d\u0438\u0438", "lightning");
+        addAliases(builder, "web", "\u043f\u0430\u0443\u0442\u0438\u043d\u0430", "\u0441\u0435\u0442\u044c", "web");
+        addAliases(builder, "heal", "\u043b\u0435\u0447\u0435\u043d\u0438\u0435", "\u0438\u0441\u0446\u0435\u043b\u0435\u043d\u0438\u0435", "heal");
+        addAliases(builder, "ghost", "\u043f\u0440\u0438\u0437\u0440\u0430\u043a", "\u0441\u043f\u0435\u043a\u0442\u0440", "ghost");
+        addAliases(builder, "wall", "\u0441\u0442\u0435\u043d\u0430", "wall");
+        addAliases(builder, "fireball", "\u043e\u0433\u043e\u043d\u044c", "\u0444\u0430\u0435\u0440\u0431\u043e\u043b", "fireball");
+        addAliases(builder, "slime", "\u0441\u043b\u0438\u0437\u044c", "\u043f\u043b\u0430\u0442\u0444\u043e\u0440\u043c\u0430", "slime");
+        addAliases(builder, "dome", "\u043a\u0443\u043f\u043e\u043b", "\u0449\u0438\u0442", "dome");
+        addAliases(builder, "shockwave", "\u0443\u0434\u0430\u0440\u043d\u0430\u044f \u0432\u043e\u043b\u043d\u0430", "shockwave");
+        addAliases(builder, "levitate", "\u043b\u0435\u0432\u0438\u0442\u0430\u0446\u0438\u044f", "\u043f\u043e\u0434\u043d\u044f\u0442\u044c\u0441\u044f", "levitate");
+        addAliases(builder, "meteor", "\u043c\u0435\u0442\u0435\u043e\u0440", "\u0437\u0432\u0435\u0437\u0434\u043d\u044b\u0439 \u043f\u0430\u0434\u0435\u043d\u0438\u0435", "meteor");
+        addAliases(builder, "push", "\u0442\u043e\u043b\u0447\u043e\u043a", "\u0440\u044b\u0432\u043e\u043a", "push");
+        addAliases(builder, "teleport", "\u0442\u0435\u043b\u0435\u043f\u043e\u0440\u0442", "\u043f\u0435\u0440\u0435\u043d\u043e\u0441", "teleport");
+        addAliases(builder, "pull", "\u043f\u0440\u0438\u0442\u044f\u0436\u0435\u043d\u0438\u0435", "\u043f\u0440\u0438\u0442\u044f\u043d\u0438", "pull");
+    }
+
+    private static void addAliases(PhraseMatcher.Builder builder, String spellId, String... aliases) {
+        for (String alias : aliases) {
+            builder.add(spellId, alias, true);
+        }
+    }
+}
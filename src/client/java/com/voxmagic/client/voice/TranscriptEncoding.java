@@ -0,0 +1,65 @@
+package com.voxmagic.client.voice;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Repairs transcripts that JNA decoded with the wrong charset (seen on Windows consoles set to
+ * CP866/CP1251). The mis-decoding is decided once, from the first non-ASCII transcript of a
+ * session, and then applied to every later string; ASCII text is passed through untouched.
+ */
+public final class TranscriptEncoding {
+    private static final List<Charset> CANDIDATES = List.of(
+            Charset.forName("IBM866"), Charset.forName("windows-1251"), StandardCharsets.ISO_8859_1);
+
+    private boolean decided = false;
+    private Charset source;
+
+    public String fix(String s) {
+        if (s == null || s.isEmpty()) {
+            return "";
+        }
+        if (isAscii(s)) {
+            return s;
+        }
+        if (!decided) {
+            source = detect(s);
+            decided = true;
+        }
+        return source == null ? s : new String(s.getBytes(source), StandardCharsets.UTF_8);
+    }
+
+    private static Charset detect(String sample) {
+        if (containsCyrillic(sample)) {
+            return null;
+        }
+        for (Charset charset : CANDIDATES) {
+            try {
+                if (containsCyrillic(new String(sample.getBytes(charset), StandardCharsets.UTF_8))) {
+                    return charset;
+                }
+            } catch (Exception ignored) {}
+        }
+        return null;
+    }
+
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsCyrillic(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if ((c >= '\u0430' && c <= '\u044f') || c == '\u0451' || c == '\u0401') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,123 @@
+package com.voxmagic.client.voice;
+
+/**
+ * Energy/zero-crossing voice activity gate. Silent frames are kept in a short pre-roll
+ * ring instead of being decoded; when speech starts the caller drains the pre-roll first
+ * so word onsets are not clipped, and after {@code hangoverMs} of silence the segment ends.
+ */
+public final class VoiceActivityDetector {
+    public enum Decision { SILENCE, START, SPEECH, END }
+
+    private static final double UNVOICED_ZCR = 0.25;
+    private static final double NOISE_FLOOR_FACTOR = 3.0;
+    private static final double NOISE_FLOOR_ALPHA = 0.05;
+
+    private final double threshold;
+    private final int hangoverSamples;
+    private final short[] preroll;
+    private int prerollPos = 0;
+    private int prerollFill = 0;
+
+    private boolean inSpeech = false;
+    private int silentSamples = 0;
+    private double noiseFloor = 0.0;
+    private boolean lastVoiced = false;
+
+    public VoiceActivityDetector(float sampleRate, double rmsThreshold, int hangoverMs, int prerollMs) {
+        this.threshold = Math.max(1.0, rmsThreshold);
+        this.hangoverSamples = Math.max(0, Math.round(sampleRate * hangoverMs / 1000f));
+        this.preroll = new short[Math.max(0, Math.round(sampleRate * prerollMs / 1000f))];
+    }
+
+    public Decision process(short[] samples, int len) {
+        if (len <= 0) {
+            return inSpeech ? Decision.SPEECH : Decision.SILENCE;
+        }
+        long energy = 0L;
+        int crossings = 0;
+        short prev = samples[0];
+        for (int i = 0; i < len; i++) {
+            short s = samples[i];
+            energy += (long) s * s;
+            if ((s ^ prev) < 0) {
+                crossings++;
+            }
+            prev = s;
+        }
+        double rms = Math.sqrt(energy / (double) len);
+        double zcr = crossings / (double) len;
+        double effective = Math.max(threshold, noiseFloor * NOISE_FLOOR_FACTOR);
+        boolean voiced = rms >= effective || (rms >= effective * 0.5 && zcr >= UNVOICED_ZCR);
+        lastVoiced = voiced;
+
+        if (voiced) {
+            silentSamples = 0;
+            if (!inSpeech) {
+                inSpeech = true;
+                return Decision.START;
+            }
+            return Decision.SPEECH;
+        }
+        if (inSpeech) {
+            silentSamples += len;
+            if (silentSamples >= hangoverSamples) {
+                inSpeech = false;
+                silentSamples = 0;
+                return Decision.END;
+            }
+            return Decision.SPEECH;
+        }
+        noiseFloor += (rms - noiseFloor) * NOISE_FLOOR_ALPHA;
+        remember(samples, len);
+        return Decision.SILENCE;
+    }
+
+    /** Copies the buffered pre-roll, oldest first, into {@code dst} and clears it. */
+    public int drainPreroll(short[] dst) {
+        int count = Math.min(prerollFill, dst.length);
+        int start = prerollPos - prerollFill;
+        if (start < 0) {
+            start += preroll.length;
+        }
+        int first = Math.min(count, preroll.length - start);
+        System.arraycopy(preroll, start, dst, 0, first);
+        System.arraycopy(preroll, 0, dst, first, count - first);
+        prerollFill = 0;
+        prerollPos = 0;
+        return count;
+    }
+
+    /** Whether the last processed frame itself was voiced (hangover frames report {@code false}). */
+    public boolean lastFrameVoiced() {
+        return lastVoiced;
+    }
+
+    public int prerollCapacity() {
+        return preroll.length;
+    }
+
+    public void reset() {
+        inSpeech = false;
+        lastVoiced = false;
+        silentSamples = 0;
+        prerollFill = 0;
+        prerollPos = 0;
+    }
+
+    private void remember(short[] samples, int len) {
+        int cap = preroll.length;
+        if (cap == 0) {
+            return;
+        }
+        int offset = 0;
+        if (len > cap) {
+            offset = len - cap;
+            len = cap;
+        }
+        int first = Math.min(len, cap - prerollPos);
+        System.arraycopy(samples, offset, preroll, prerollPos, first);
+        System.arraycopy(samples, offset + first, preroll, 0, len - first);
+        prerollPos = (prerollPos + len) % cap;
+        prerollFill = Math.min(cap, prerollFill + len);
+    }
+}
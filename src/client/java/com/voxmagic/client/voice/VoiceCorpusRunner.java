@@ -0,0 +1,182 @@
+package com.voxmagic.client.voice;
+
+import com.voxmagic.common.config.ModConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Headless replay of a labelled corpus through {@link VoicePipeline} with the default config.
+ * Layout: {@code <corpus>/<spellId>/*.wav} (or {@code .raw}/{@code .pcm}); recordings under
+ * {@code <corpus>/none} must not cast anything. Prints per-spell accuracy, the false-positive
+ * rate and time from the end of speech to the match.
+ *
+ * <p>Usage: {@code VoiceCorpusRunner <model-dir> <corpus-dir> [--realtime]}; also wired up as
+ * the {@code voiceCorpus} Gradle task.
+ */
+public final class VoiceCorpusRunner {
+    private static final String NEGATIVE_LABEL = "none";
+
+    private VoiceCorpusRunner() {}
+
+    public static void main(String[] args) throws Exception {
+        List<String> positional = new ArrayList<>();
+        boolean realTime = false;
+        for (String arg : args) {
+            if (arg.equals("--realtime")) {
+                realTime = true;
+            } else {
+                positional.add(arg);
+            }
+        }
+        if (positional.size() != 2) {
+            System.err.println("usage: VoiceCorpusRunner <model-dir> <corpus-dir> [--realtime]");
+            System.exit(2);
+        }
+        Path corpus = Path.of(positional.get(1));
+        Map<String, List<Path>> labelled = scan(corpus);
+        if (labelled.isEmpty()) {
+            System.err.println("no recordings found under " + corpus);
+            System.exit(2);
+        }
+
+        ModConfig.INSTANCE = ModConfig.defaults();
+        ModConfig.INSTANCE.voice.debug_chat = false;
+
+        Map<String, Tally> tallies = new TreeMap<>();
+        List<Long> latencies = new ArrayList<>();
+        int negatives = 0;
+        int falsePositives = 0;
+        double audioSeconds = 0;
+        long wallNanos = 0;
+
+        try (SpeechModel model = VoskBindings.loadModel(Path.of(positional.get(0)));
+             RecognitionSession session = RecognitionSession.open(model, Resampler.TARGET_RATE, PhraseGrammar.current())) {
+            for (Map.Entry<String, List<Path>> entry : labelled.entrySet()) {
+                String expected = entry.getKey();
+                boolean negative = expected.equals(NEGATIVE_LABEL);
+                for (Path file : entry.getValue()) {
+                    Replay replay = replay(session, file, realTime);
+                    audioSeconds += replay.seconds;
+                    wallNanos += replay.wallNanos;
+                    if (negative) {
+                        negatives++;
+                        if (replay.spellId != null) {
+                            falsePositives++;
+                            System.out.println("false positive: " + file + " -> " + replay.spellId + " (" + replay.transcript + ")");
+                        }
+                        continue;
+                    }
+                    Tally tally = tallies.computeIfAbsent(expected, k -> new Tally());
+                    tally.files++;
+                    if (expected.equals(replay.spellId)) {
+                        tally.correct++;
+                        latencies.add(replay.latencyNanos);
+                    } else if (replay.spellId != null) {
+                        tally.wrong++;
+                        System.out.println("wrong: " + file + " -> " + replay.spellId + " (" + replay.transcript + ")");
+                    } else {
+                        tally.missed++;
+                        System.out.println("missed: " + file + " (" + replay.transcript + ")");
+                    }
+                }
+            }
+        }
+
+        System.out.println();
+        System.out.println(String.format(Locale.ROOT, "%-12s %6s %8s %6s %7s %8s", "spell", "files", "correct", "wrong", "missed", "accuracy"));
+        int files = 0;
+        int correct = 0;
+        for (Map.Entry<String, Tally> entry : tallies.entrySet()) {
+            Tally t = entry.getValue();
+            files += t.files;
+            correct += t.correct;
+            System.out.println(String.format(Locale.ROOT, "%-12s %6d %8d %6d %7d %7.1f%%", entry.getKey(), t.files, t.correct, t.wrong, t.missed, percent(t.correct, t.files)));
+        }
+        System.out.println(String.format(Locale.ROOT, "overall accuracy: %.1f%% (%d/%d)", percent(correct, files), correct, files));
+        System.out.println(String.format(Locale.ROOT, "false positives: %.1f%% (%d/%d negative recordings)", percent(falsePositives, negatives), falsePositives, negatives));
+        if (!latencies.isEmpty()) {
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            System.out.println(String.format(Locale.ROOT, "time to match (%s clock): p50 %d ms, p99 %d ms",
+                    realTime ? "wall" : "stream", percentile(sorted, 50) / 1_000_000L, percentile(sorted, 99) / 1_000_000L));
+        }
+        System.out.println(String.format(Locale.ROOT, "decoded %.1f s of audio in %.1f s (%.1fx real time)",
+                audioSeconds, wallNanos / 1e9, wallNanos == 0 ? 0 : audioSeconds / (wallNanos / 1e9)));
+    }
+
+    private static Replay replay(RecognitionSession session, Path file, boolean realTime) throws IOException {
+        Replay replay = new Replay();
+        session.reset();
+        try (WavAudioSource source = WavAudioSource.open(file, realTime)) {
+            VoicePipeline pipeline = new VoicePipeline(session, source, utterance -> {
+                if (replay.transcript == null) {
+                    replay.transcript = utterance.transcript();
+                }
+                if (replay.spellId == null && utterance.spellId() != null) {
+                    replay.spellId = utterance.spellId();
+                    replay.transcript = utterance.transcript();
+                    replay.latencyNanos = Math.max(0L, source.clockNanos() - utterance.speechEndNanos());
+                }
+            });
+            long start = System.nanoTime();
+            pipeline.run();
+            pipeline.flush();
+            replay.wallNanos = System.nanoTime() - start;
+            replay.seconds = source.seconds();
+        }
+        return replay;
+    }
+
+    private static Map<String, List<Path>> scan(Path corpus) throws IOException {
+        Map<String, List<Path>> labelled = new TreeMap<>();
+        if (!Files.isDirectory(corpus)) {
+            return labelled;
+        }
+        try (Stream<Path> dirs = Files.list(corpus)) {
+            for (Path dir : dirs.filter(Files::isDirectory).toList()) {
+                try (Stream<Path> recordings = Files.list(dir)) {
+                    List<Path> list = recordings.filter(VoiceCorpusRunner::isRecording).sorted().toList();
+                    if (!list.isEmpty()) {
+                        labelled.put(dir.getFileName().toString(), list);
+                    }
+                }
+            }
+        }
+        return labelled;
+    }
+
+    private static boolean isRecording(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".wav") || name.endsWith(".raw") || name.endsWith(".pcm");
+    }
+
+    private static long percentile(long[] sorted, int p) {
+        return sorted[Math.min(sorted.length - 1, sorted.length * p / 100)];
+    }
+
+    private static double percent(int part, int total) {
+        return total == 0 ? 0 : 100.0 * part / total;
+    }
+
+    private static final class Tally {
+        int files;
+        int correct;
+        int wrong;
+        int missed;
+    }
+
+    private static final class Replay {
+        String transcript;
+        String spellId;
+        long latencyNanos;
+        long wallNanos;
+        double seconds;
+    }
+}
@@ -0,0 +1,413 @@
+package com.voxmagic.client.voice;
+
+import com.voxmagic.VoxMagicMode;
+import com.voxmagic.common.config.ModConfig;
+import com.voxmagic.common.voice.PhraseMatcher;
+import com.voxmagic.common.voice.PhraseText;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * The decode path shared by the microphone and offline replay: source, resampler to
+ * {@link Resampler#TARGET_RATE}, cleanup stages, VAD gate, gain, recognizer, then the phrase
+ * matcher on partial and final results. One instance per stream; {@link #run()} blocks on the calling thread.
+ *
+ * <p>With more than one {@link Lane} every chunk is decoded by all lanes in parallel (the first
+ * on the calling thread, the rest on {@link #DECODE_POOL}) straight from the shared sample
+ * buffer, and the most confident spell match wins; the other lanes are reset.
+ */
+public final class VoicePipeline {
+    public static final float FRAME_SECONDS = 0.03f;
+
+    private static final long UTTERANCE_TIMEOUT_NANOS = 6_000_000_000L;
+    private static final long READ_TIMEOUT_NANOS = 100_000_000L;
+    private static final ExecutorService DECODE_POOL = Executors.newFixedThreadPool(2, new ThreadFactory() {
+        private final AtomicInteger next = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "VoxDecode-" + next.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    /**
+     * One recognized utterance. {@code confidence} is the lowest word confidence ({@code NaN}
+     * when unknown); {@code speechEndNanos} is the source clock at the last voiced chunk;
+     * {@code early} is set when it fired from a partial result; {@code language} is the
+     * winning lane's language ({@code null} for a single unlabelled lane).
+     */
+    public record Utterance(String transcript, String spellId, float confidence, long speechEndNanos, boolean early, String language) {}
+
+    /** A recognizer session plus the language its grammar is restricted to ({@code null} for all phrases). */
+    public record Lane(RecognitionSession session, String language) {}
+
+    private final AudioSource source;
+    private final Consumer<Utterance> listener;
+    private final int frameSamples;
+    private final short[] captured;
+    private final Resampler resampler;
+    private final short[] samples;
+    private final AudioStageChain cleanup;
+    private final AudioStageChain gain;
+    private final VoiceActivityDetector vad;
+    private final short[] preroll;
+    private final Decoder[] decoders;
+    private final Future<?>[] pending;
+    private long lastVoiceNanos = 0L;
+    private long samplesTotal = 0L;
+    private volatile boolean stopped = false;
+
+    public VoicePipeline(RecognitionSession session, AudioSource source, Consumer<Utterance> listener) {
+        this(List.of(new Lane(session, null)), source, listener);
+    }
+
+    public VoicePipeline(List<Lane> lanes, AudioSource source, Consumer<Utterance> listener) {
+        this.source = source;
+        this.listener = listener;
+        this.frameSamples = frameSamples(source.sampleRate());
+        this.captured = new short[frameSamples];
+        this.resampler = new Resampler(Math.round(source.sampleRate()), Resampler.TARGET_RATE, frameSamples);
+        this.samples = new short[resampler.maxOutput(frameSamples)];
+        this.cleanup = AudioStageChain.cleanupFromConfig(Resampler.TARGET_RATE);
+        this.gain = AudioStageChain.gainFromConfig();
+        this.vad = createVad(Resampler.TARGET_RATE);
+        this.preroll = vad != null ? new short[vad.prerollCapacity()] : null;
+        int stabilityMs = ModConfig.INSTANCE.voice.partial_stability_ms;
+        this.decoders = new Decoder[lanes.size()];
+        for (int i = 0; i < decoders.length; i++) {
+            decoders[i] = new Decoder(lanes.get(i), stabilityMs);
+        }
+        this.pending = new Future<?>[decoders.length];
+    }
+
+    public static int frameSamples(float sampleRate) {
+        return Math.max(256, Math.round(sampleRate * FRAME_SECONDS));
+    }
+
+    /** Pulls frames until the thread is interrupted, {@link #stop()} or the source ends; returns samples consumed. */
+    public long run() {
+        while (!stopped && !Thread.currentThread().isInterrupted()) {
+            int count;
+            try {
+                count = source.read(captured, frameSamples, READ_TIMEOUT_NANOS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (count < 0) {
+                VoxMagicMode.LOGGER.info("Audio stream ended after {} samples", samplesTotal);
+                break;
+            }
+            if (count == 0) {
+                continue;
+            }
+            samplesTotal += count;
+            process(count, source.clockNanos());
+        }
+        return samplesTotal;
+    }
+
+    /** Makes {@link #run()} return after the current frame; callable from any thread. */
+    public void stop() {
+        stopped = true;
+    }
+
+    /** Emits whatever the recognizers still hold, e.g. when a recording ends mid-utterance. */
+    public void flush() {
+        for (Decoder decoder : decoders) {
+            decoder.finish(lastVoiceNanos);
+        }
+        arbitrate();
+    }
+
+    private void process(int count, long chunkNanos) {
+        count = resampler.process(captured, count, samples);
+        cleanup.process(samples, count);
+        int pre = 0;
+        boolean segmentEnded = false;
+        if (vad != null) {
+            switch (vad.process(samples, count)) {
+                case SILENCE -> {
+                    return;
+                }
+                case START -> {
+                    pre = vad.drainPreroll(preroll);
+                    gain.process(preroll, pre);
+                }
+                case END -> segmentEnded = true;
+                default -> {}
+            }
+        }
+        gain.process(samples, count);
+        if (vad == null || vad.lastFrameVoiced()) {
+            lastVoiceNanos = chunkNanos;
+        }
+        if (decoders.length == 1) {
+            decoders[0].step(preroll, pre, samples, count, segmentEnded, chunkNanos, lastVoiceNanos);
+        } else {
+            decodeParallel(pre, count, segmentEnded, chunkNanos);
+        }
+        arbitrate();
+    }
+
+    /**
+     * Lanes read {@link #samples} and {@link #preroll} concurrently; both stay untouched until every
+     * lane is done. An interrupt waits for that too, so no lane is still inside its recognizer when
+     * the caller closes the sessions.
+     */
+    private void decodeParallel(int pre, int count, boolean segmentEnded, long chunkNanos) {
+        long voiceNanos = lastVoiceNanos;
+        for (int i = 1; i < decoders.length; i++) {
+            Decoder decoder = decoders[i];
+            pending[i] = DECODE_POOL.submit(() -> decoder.step(preroll, pre, samples, count, segmentEnded, chunkNanos, voiceNanos));
+        }
+        try {
+            decoders[0].step(preroll, pre, samples, count, segmentEnded, chunkNanos, voiceNanos);
+        } finally {
+            awaitLanes();
+        }
+    }
+
+    private void awaitLanes() {
+        boolean interrupted = false;
+        Throwable failure = null;
+        for (int i = 1; i < decoders.length; i++) {
+            while (pending[i] != null) {
+                try {
+                    pending[i].get();
+                    pending[i] = null;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    failure = failure == null ? e.getCause() : failure;
+                    pending[i] = null;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Decoder lane failed", failure);
+        }
+    }
+
+    /**
+     * Fires the most confident spell match among the lanes' candidates and resets the losers.
+     * A transcript without a match is only reported when no other lane is still mid-utterance,
+     * so a bilingual word misheard by one lane does not spam the no-match message.
+     */
+    private void arbitrate() {
+        Decoder winner = null;
+        for (Decoder decoder : decoders) {
+            Candidate c = decoder.candidate;
+            if (c != null && c.spellId != null && (winner == null || score(c) > score(winner.candidate))) {
+                winner = decoder;
+            }
+        }
+        if (winner != null) {
+            Candidate c = winner.candidate;
+            if (c.early) {
+                VoiceStats.recordEarlyFire();
+            }
+            if (decoders.length > 1) {
+                VoiceStats.recordLaneWin(winner.language);
+            }
+            listener.accept(new Utterance(c.hypothesis.text(), c.spellId, c.hypothesis.confidence(), c.speechEndNanos, c.early, winner.language));
+            for (Decoder decoder : decoders) {
+                if (decoder.candidate == null) {
+                    decoder.reset();
+                }
+                decoder.candidate = null;
+            }
+            return;
+        }
+        for (Decoder decoder : decoders) {
+            Candidate c = decoder.candidate;
+            if (c == null) {
+                continue;
+            }
+            decoder.candidate = null;
+            if (!otherLaneBusy(decoder)) {
+                listener.accept(new Utterance(c.hypothesis.text(), null, c.hypothesis.confidence(), c.speechEndNanos, false, decoder.language));
+            }
+        }
+    }
+
+    private boolean otherLaneBusy(Decoder self) {
+        for (Decoder decoder : decoders) {
+            if (decoder != self && decoder.partials.hasText()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static float score(Candidate c) {
+        float confidence = c.hypothesis.confidence();
+        return Float.isNaN(confidence) ? 0f : confidence;
+    }
+
+    private static VoiceActivityDetector createVad(float sampleRate) {
+        ModConfig.VoiceCfg voice = ModConfig.INSTANCE.voice;
+        if (!voice.vad_enabled) {
+            return null;
+        }
+        return new VoiceActivityDetector(sampleRate, voice.vad_rms_threshold, voice.vad_hangover_ms, voice.vad_preroll_ms);
+    }
+
+    /**
+     * One lane: a recognizer session with its own result parsing and partial tracking. Steps
+     * never call the listener; they leave at most one {@link Candidate} for {@link #arbitrate()}.
+     * A lane that ends an utterance resets itself; the winner's arbitration resets all lanes.
+     */
+    private static final class Decoder {
+        final RecognitionSession session;
+        final String language;
+        final HypothesisReader reader = new HypothesisReader();
+        final PartialTracker partials;
+        Candidate candidate;
+        private long utteranceStart = 0L;
+
+        Decoder(Lane lane, int stabilityMs) {
+            this.session = lane.session();
+            this.language = lane.language();
+            this.partials = new PartialTracker(reader, stabilityMs);
+        }
+
+        void step(short[] preroll, int pre, short[] samples, int count, boolean segmentEnded, long chunkNanos, long voiceNanos) {
+            if (pre > 0 && session.feed(preroll, pre)) {
+                end(reader.result(session.result()), chunkNanos, false);
+            }
+            if (session.feed(samples, count)) {
+                end(reader.result(session.result()), voiceNanos, false);
+                return;
+            }
+            if (segmentEnded) {
+                end(reader.result(session.finalResult()), voiceNanos, false);
+                return;
+            }
+            Hypothesis early = partials.update(session.partialResult(), chunkNanos);
+            if (early != null) {
+                end(early, voiceNanos, true);
+                return;
+            }
+            if (utteranceStart == 0L && partials.hasText()) {
+                utteranceStart = chunkNanos;
+            }
+            if (utteranceStart != 0L && chunkNanos - utteranceStart > UTTERANCE_TIMEOUT_NANOS) {
+                VoxMagicMode.LOGGER.info("Vosk utterance timeout reached; requesting final result");
+                end(reader.result(session.finalResult()), voiceNanos, false);
+            }
+        }
+
+        void finish(long voiceNanos) {
+            end(reader.result(session.finalResult()), voiceNanos, false);
+        }
+
+        /** Keeps a spell match over an earlier miss from the same chunk, then resets for the next utterance. */
+        private void end(Hypothesis hypothesis, long speechEndNanos, boolean early) {
+            if (!hypothesis.text().isBlank()) {
+                String spellId = SpellPhrases.matcher().findSpell(PhraseText.normalize(hypothesis.text()));
+                if (candidate == null || candidate.spellId == null) {
+                    candidate = new Candidate(hypothesis, spellId, early, speechEndNanos);
+                }
+            }
+            reset();
+        }
+
+        void reset() {
+            session.reset();
+            session.ensureGrammar(PhraseGrammar.current(language));
+            partials.reset();
+            utteranceStart = 0L;
+        }
+    }
+
+    private record Candidate(Hypothesis hypothesis, String spellId, boolean early, long speechEndNanos) {}
+
+    /** Per-session result parsing: one streaming JSON reader and one charset decision. */
+    private static final class HypothesisReader {
+        private final VoskJsonReader json = new VoskJsonReader();
+        private final TranscriptEncoding encoding = new TranscriptEncoding();
+
+        Hypothesis result(String raw) {
+            return read(raw, "text", "result");
+        }
+
+        Hypothesis partial(String raw) {
+            return read(raw, "partial", "partial_result");
+        }
+
+        private Hypothesis read(String raw, String textKey, String wordsKey) {
+            if (!json.read(raw, textKey, wordsKey) || json.text().isEmpty()) {
+                return Hypothesis.EMPTY;
+            }
+            return new Hypothesis(encoding.fix(json.text()), json.confidence());
+        }
+    }
+
+    private record Hypothesis(String text, float confidence) {
+        static final Hypothesis EMPTY = new Hypothesis("", Float.NaN);
+    }
+
+    /**
+     * Re-matches the partial hypothesis after every decoded chunk, but only parses it when
+     * Vosk's JSON actually changed. A match no longer registered phrase extends fires at once;
+     * a prefix of a longer phrase fires once it has been the best match for {@code stabilityMs}.
+     */
+    private static final class PartialTracker {
+        private final HypothesisReader reader;
+        private final long stabilityNanos;
+        private String lastJson;
+        private Hypothesis current = Hypothesis.EMPTY;
+        private PhraseMatcher.Match pending;
+        private long pendingSinceNanos;
+
+        PartialTracker(HypothesisReader reader, int stabilityMs) {
+            this.reader = reader;
+            this.stabilityNanos = Math.max(0, stabilityMs) * 1_000_000L;
+        }
+
+        /** Returns the partial hypothesis to fire now, or {@code null} to keep listening. */
+        Hypothesis update(String json, long nowNanos) {
+            if (json != null && !json.equals(lastJson)) {
+                lastJson = json;
+                current = reader.partial(json);
+                PhraseMatcher.Match match = current.text().isBlank() ? null : SpellPhrases.matcher().find(PhraseText.normalize(current.text()));
+                if (match == null) {
+                    pending = null;
+                } else if (pending == null || !match.spellId().equals(pending.spellId()) || match.end() != pending.end()) {
+                    pending = match;
+                    pendingSinceNanos = nowNanos;
+                }
+                if (match != null) {
+                    VoxMagicMode.LOGGER.debug("Partial '{}' -> {}{}", current.text(), match.spellId(), match.complete() ? "" : " (waiting)");
+                }
+            }
+            if (pending != null && (pending.complete() || nowNanos - pendingSinceNanos >= stabilityNanos)) {
+                return current;
+            }
+            return null;
+        }
+
+        boolean hasText() {
+            return !current.text().isBlank();
+        }
+
+        void reset() {
+            lastJson = null;
+            current = Hypothesis.EMPTY;
+            pending = null;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.voxmagic.client.voice;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lightweight counters for the voice pipeline, printed by {@code /voxdebug stats}.
+ */
+public final class VoiceStats {
+    private static final int LATENCY_SAMPLES = 256;
+
+    private static volatile long modelLoadMs = -1L;
+    private static volatile long firstListenMs = -1L;
+    private static volatile long lastListenMs = -1L;
+    private static volatile long listenCount = 0L;
+    private static volatile long frameCount = 0L;
+    private static volatile long frameNanos = 0L;
+    private static final AtomicLong overruns = new AtomicLong();
+    private static final AtomicLong droppedSamples = new AtomicLong();
+    private static final AtomicLong earlyFires = new AtomicLong();
+    private static final long[] sendLatencyNanos = new long[LATENCY_SAMPLES];
+    private static int sendLatencyCount = 0;
+    private static final Map<String, StageTimer> STAGES = new LinkedHashMap<>();
+    private static final Map<String, AtomicLong> LANE_WINS = new ConcurrentSkipListMap<>();
+
+    private VoiceStats() {}
+
+    public static void recordModelLoad(long ms) {
+        modelLoadMs = ms;
+    }
+
+    /** Time from a listen request until the mic is open and the recognizer is ready. */
+    public static void recordListenStartup(long ms) {
+        if (firstListenMs < 0) {
+            firstListenMs = ms;
+        }
+        lastListenMs = ms;
+        listenCount++;
+    }
+
+    /** Time spent inside the recognizer for one audio buffer; written by every decode lane. */
+    public static synchronized void recordFrame(long nanos) {
+        frameCount++;
+        frameNanos += nanos;
+    }
+
+    /** Which language's lane won a dual-language arbitration. */
+    public static void recordLaneWin(String language) {
+        LANE_WINS.computeIfAbsent(language == null ? "?" : language, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    /** Samples the capture thread had to drop because the decoder fell behind. */
+    public static void recordOverrun(int samples) {
+        overruns.incrementAndGet();
+        droppedSamples.addAndGet(samples);
+    }
+
+    /** An utterance fired from a partial hypothesis instead of waiting for the final result. */
+    public static void recordEarlyFire() {
+        earlyFires.incrementAndGet();
+    }
+
+    /** Time from the last voiced audio of an utterance until its cast packet was sent. */
+    public static synchronized void recordSendLatency(long nanos) {
+        sendLatencyNanos[sendLatencyCount++ % LATENCY_SAMPLES] = nanos;
+    }
+
+    /** Shared timer for a preprocessing stage; created once per name and kept for the session. */
+    public static synchronized StageTimer stageTimer(String name) {
+        return STAGES.computeIfAbsent(name, StageTimer::new);
+    }
+
+    public static List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        for (String model : VoskModelRegistry.describe()) {
+            lines.add("model " + model);
+        }
+        lines.add("model load: " + formatMs(modelLoadMs));
+        lines.add("listen startup: first " + formatMs(firstListenMs) + ", last " + formatMs(lastListenMs) + " (" + listenCount + " listens)");
+        long frames = frameCount;
+        lines.add("decode: " + frames + " frames, avg " + (frames == 0 ? "n/a" : (frameNanos / frames / 1000L) + " us/frame"));
+        lines.add("capture overruns: " + overruns.get() + " (" + droppedSamples.get() + " samples dropped)");
+        if (!LANE_WINS.isEmpty()) {
+            lines.add("lane wins: " + LANE_WINS);
+        }
+        lines.add("speech end -> packet: " + describeLatency() + ", " + earlyFires.get() + " early fires");
+        synchronized (VoiceStats.class) {
+            for (StageTimer timer : STAGES.values()) {
+                lines.add(timer.describe());
+            }
+        }
+        return lines;
+    }
+
+    private static synchronized String describeLatency() {
+        int n = Math.min(sendLatencyCount, LATENCY_SAMPLES);
+        if (n == 0) {
+            return "n/a";
+        }
+        long[] sorted = Arrays.copyOf(sendLatencyNanos, n);
+        Arrays.sort(sorted);
+        return "p50 " + (sorted[n / 2] / 1_000_000L) + " ms, p99 " + (sorted[Math.min(n - 1, n * 99 / 100)] / 1_000_000L) + " ms (last " + n + ")";
+    }
+
+    /** Written by the decode thread only; read racily by {@link #describe()}. */
+    public static final class StageTimer {
+        private final String name;
+        private volatile long nanos = 0L;
+        private volatile long samples = 0L;
+
+        private StageTimer(String name) {
+            this.name = name;
+        }
+
+        public void record(long elapsedNanos, int count) {
+            nanos += elapsedNanos;
+            samples += count;
+        }
+
+        private String describe() {
+            long n = samples;
+            if (n == 0) {
+                return "stage " + name + ": n/a";
+            }
+            double audioNanos = n * 1_000_000_000.0 / Resampler.TARGET_RATE;
+            return String.format(Locale.ROOT, "stage %s: %.3f%% of real time (%d us per s of audio)",
+                    name, 100.0 * nanos / audioNanos, Math.round(nanos / (audioNanos / 1e9) / 1000.0));
+        }
+    }
+
+    private static String formatMs(long ms) {
+        return ms < 0 ? "n/a" : ms + " ms";
+    }
+}
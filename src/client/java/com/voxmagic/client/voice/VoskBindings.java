@@ -0,0 +1,35 @@
+package com.voxmagic.client.voice;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Entry point to the Vosk runtime. {@link VoskSpeechModel} is compiled against
+ * {@code com.alphacephei:vosk} and is only touched once the classes are known to be present.
+ */
+public final class VoskBindings {
+    private static final boolean AVAILABLE = detect();
+
+    private VoskBindings() {}
+
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    public static SpeechModel loadModel(Path path) throws IOException {
+        if (!AVAILABLE) {
+            throw new IOException("Vosk runtime is not available");
+        }
+        return VoskSpeechModel.load(path);
+    }
+
+    private static boolean detect() {
+        try {
+            Class.forName("org.vosk.Model");
+            Class.forName("org.vosk.Recognizer");
+            return true;
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+}
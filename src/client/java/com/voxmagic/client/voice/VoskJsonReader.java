@@ -0,0 +1,263 @@
+package com.voxmagic.client.voice;
+
+/**
+ * Pulls the transcript and word confidences out of a Vosk result without building a JSON
+ * tree. Understands the flat shape Vosk emits: a top-level object with a string field
+ * ({@code text} or {@code partial}) and an optional array of word objects carrying
+ * {@code conf}. Everything else is skipped. One instance per decode thread; not thread-safe.
+ */
+public final class VoskJsonReader {
+    private final StringBuilder buf = new StringBuilder(64);
+    private String json;
+    private int pos;
+    private String text = "";
+    private float confidence = Float.NaN;
+
+    /**
+     * Parses {@code json}, reading {@code textKey} and the lowest {@code conf} inside the
+     * {@code wordsKey} array. Returns {@code false} (and an empty text) on malformed input.
+     */
+    public boolean read(String json, String textKey, String wordsKey) {
+        this.json = json;
+        this.pos = 0;
+        String previous = text;
+        text = "";
+        confidence = Float.NaN;
+        if (json == null) {
+            return false;
+        }
+        try {
+            expect('{');
+            if (peek() == '}') {
+                return true;
+            }
+            while (true) {
+                int keyStart = stringBounds();
+                int keyEnd = pos - 1;
+                expect(':');
+                if (keyIs(keyStart, keyEnd, textKey)) {
+                    readString();
+                    text = buf.length() == 0 ? "" : (previous.contentEquals(buf) ? previous : buf.toString());
+                } else if (keyIs(keyStart, keyEnd, wordsKey)) {
+                    readWords();
+                } else {
+                    skipValue();
+                }
+                char c = next();
+                if (c == '}') {
+                    return true;
+                }
+                if (c != ',') {
+                    throw new IllegalStateException();
+                }
+            }
+        } catch (RuntimeException e) {
+            text = "";
+            confidence = Float.NaN;
+            return false;
+        } finally {
+            this.json = null;
+        }
+    }
+
+    public String text() {
+        return text;
+    }
+
+    /** Lowest word confidence of the last read, or {@code NaN} when no word had one. */
+    public float confidence() {
+        return confidence;
+    }
+
+    private void readWords() {
+        expect('[');
+        if (peek() == ']') {
+            pos++;
+            return;
+        }
+        while (true) {
+            expect('{');
+            if (peek() == '}') {
+                pos++;
+            } else {
+                while (true) {
+                    int keyStart = stringBounds();
+                    int keyEnd = pos - 1;
+                    expect(':');
+                    if (keyIs(keyStart, keyEnd, "conf")) {
+                        float conf = (float) readNumber();
+                        confidence = Float.isNaN(confidence) ? conf : Math.min(confidence, conf);
+                    } else {
+                        skipValue();
+                    }
+                    char c = next();
+                    if (c == '}') {
+                        break;
+                    }
+                    if (c != ',') {
+                        throw new IllegalStateException();
+                    }
+                }
+            }
+            char c = next();
+            if (c == ']') {
+                return;
+            }
+            if (c != ',') {
+                throw new IllegalStateException();
+            }
+        }
+    }
+
+    private boolean keyIs(int start, int end, String key) {
+        return end - start == key.length() && json.regionMatches(start, key, 0, key.length());
+    }
+
+    /** Skips a string with no escapes expected (a key) and returns the index of its first char. */
+    private int stringBounds() {
+        expect('"');
+        int start = pos;
+        while (true) {
+            char c = json.charAt(pos++);
+            if (c == '\\') {
+                pos++;
+            } else if (c == '"') {
+                return start;
+            }
+        }
+    }
+
+    private void readString() {
+        expect('"');
+        buf.setLength(0);
+        while (true) {
+            char c = json.charAt(pos++);
+            if (c == '"') {
+                return;
+            }
+            if (c != '\\') {
+                buf.append(c);
+                continue;
+            }
+            char e = json.charAt(pos++);
+            switch (e) {
+                case 'n' -> buf.append('\n');
+                case 't' -> buf.append('\t');
+                case 'r' -> buf.append('\r');
+                case 'b' -> buf.append('\b');
+                case 'f' -> buf.append('\f');
+                case 'u' -> {
+                    buf.append((char) Integer.parseInt(json, pos, pos + 4, 16));
+                    pos += 4;
+                }
+                default -> buf.append(e);
+            }
+        }
+    }
+
+    private double readNumber() {
+        skipWhitespace();
+        int start = pos;
+        boolean negative = false;
+        if (json.charAt(pos) == '-') {
+            negative = true;
+            pos++;
+        }
+        long mantissa = 0L;
+        int scale = 0;
+        boolean fraction = false;
+        int digits = 0;
+        while (pos < json.length()) {
+            char c = json.charAt(pos);
+            if (c >= '0' && c <= '9') {
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    digits++;
+                    if (fraction) {
+                        scale++;
+                    }
+                } else if (!fraction) {
+                    scale--;
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else if (c == 'e' || c == 'E') {
+                skipNumberTail();
+                return Double.parseDouble(json.substring(start, pos));
+            } else {
+                break;
+            }
+            pos++;
+        }
+        if (digits == 0) {
+            throw new IllegalStateException();
+        }
+        double value = scale >= 0 ? mantissa / Math.pow(10, scale) : mantissa * Math.pow(10, -scale);
+        return negative ? -value : value;
+    }
+
+    private void skipNumberTail() {
+        while (pos < json.length()) {
+            char c = json.charAt(pos);
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                pos++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void skipValue() {
+        char c = peek();
+        if (c == '"') {
+            stringBounds();
+            return;
+        }
+        if (c == '{' || c == '[') {
+            int depth = 0;
+            do {
+                char d = json.charAt(pos);
+                if (d == '"') {
+                    stringBounds();
+                    continue;
+                }
+                if (d == '{' || d == '[') {
+                    depth++;
+                } else if (d == '}' || d == ']') {
+                    depth--;
+                }
+                pos++;
+            } while (depth > 0);
+            return;
+        }
+        while (pos < json.length()) {
+            char d = json.charAt(pos);
+            if (d == ',' || d == '}' || d == ']' || Character.isWhitespace(d)) {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private void expect(char c) {
+        if (next() != c) {
+            throw new IllegalStateException();
+        }
+    }
+
+    private char next() {
+        skipWhitespace();
+        return json.charAt(pos++);
+    }
+
+    private char peek() {
+        skipWhitespace();
+        return json.charAt(pos);
+    }
+
+    private void skipWhitespace() {
+        while (pos < json.length() && json.charAt(pos) <= ' ') {
+            pos++;
+        }
+    }
+}
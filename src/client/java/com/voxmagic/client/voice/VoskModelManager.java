@@ -5,91 +5,326 @@ import net.fabricmc.loader.api.FabricLoader;
 import com.sun.jna.Platform;
 import com.sun.jna.platform.win32.Kernel32;
 
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URI;
+import java.io.OutputStream;
+import java.net.URL;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.time.Duration;
-import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
+/**
+ * Unpacks Vosk models ({@link ModelSpec}) into the config dir and keeps them verified. Extraction is one
+ * streaming pass over the zip (no temp copy) on a background thread started at client init;
+ * a manifest of sizes, CRC32s and mtimes lets later startups validate with a few stat calls
+ * and re-extract only files that went missing or changed.
+ */
 public final class VoskModelManager {
-    public static final String RESOURCE_ZIP_PATH = "/assets/voxmagic/vosk/vosk-model-small-ru.zip";
-    public static final String TARGET_DIR_NAME = "vosk-model-small-ru";
-    private static final URI FALLBACK_MODEL_URI = URI.create("https://alphacephei.com/vosk/models/vosk-model-small-ru-0.22.zip");
-    private static final String CACHED_ZIP_NAME = "vosk-model-small-ru-download.zip";
+    private static final String CACHED_ZIP_SUFFIX = "-download.zip";
+    private static final String MANIFEST_NAME = "voxmagic-manifest.txt";
+    private static final String MANIFEST_HEADER = "# voxmagic model manifest v1 ";
 
-    public static Path ensureModelExtracted() throws IOException {
-        Path cfgDir = FabricLoader.getInstance().getConfigDir().resolve("voxmagicmode").resolve("vosk");
-        Path target = cfgDir.resolve(TARGET_DIR_NAME);
-        if (Files.isDirectory(target) && Files.exists(target.resolve("am"))) {
-            return ensureWindowsCompatiblePath(target);
+    private static final Map<String, CompletableFuture<Path>> PREPARE = new HashMap<>();
+    private static final Map<String, String> STATUS = new ConcurrentHashMap<>();
+
+    private VoskModelManager() {}
+
+    /** Starts (once per model) extracting/validating {@code spec} on a daemon thread. */
+    public static synchronized CompletableFuture<Path> prepareAsync(ModelSpec spec) {
+        CompletableFuture<Path> prepare = PREPARE.get(spec.id());
+        if (prepare == null || prepare.isCompletedExceptionally()) {
+            prepare = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return prepareModel(spec);
+                } catch (IOException e) {
+                    STATUS.put(spec.id(), "failed: " + e.getMessage());
+                    throw new CompletionException(e);
+                }
+            }, r -> {
+                Thread t = new Thread(r, "VoxModelExtract-" + spec.id());
+                t.setDaemon(true);
+                t.start();
+            });
+            PREPARE.put(spec.id(), prepare);
         }
-        Files.createDirectories(cfgDir);
+        return prepare;
+    }
+
+    /** Waits for {@link #prepareAsync}; never call this on the render thread. */
+    public static Path ensureModelExtracted(ModelSpec spec) throws IOException {
+        try {
+            return prepareAsync(spec).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw e;
+        }
+    }
+
+    public static String status(ModelSpec spec) {
+        return STATUS.getOrDefault(spec.id(), "not started");
+    }
+
+    private static Path prepareModel(ModelSpec spec) throws IOException {
+        if (spec.isLocal()) {
+            if (Files.notExists(spec.localDir().resolve("am"))) {
+                throw new IOException("Vosk model missing; expected files under " + spec.localDir());
+            }
+            STATUS.put(spec.id(), "ready (local)");
+            return spec.localDir();
+        }
+        long start = System.nanoTime();
+        Path cfgDir = resolveModelBase();
+        Path target = cfgDir.resolve(spec.dirName());
+        Files.createDirectories(target);
 
-        Path zipToUse = null;
-        boolean tempZip = false;
-        try (InputStream in = VoskModelManager.class.getResourceAsStream(RESOURCE_ZIP_PATH)) {
-            if (in != null) {
-                Path temp = Files.createTempFile("vosk-model-", ".zip");
-                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
-                zipToUse = temp;
-                tempZip = true;
+        ModelSource source = openSource(spec, cfgDir);
+        Manifest manifest = readManifest(target, source);
+        if (manifest != null) {
+            Set<String> damaged = validate(target, manifest);
+            if (damaged.isEmpty()) {
+                source.close();
+                if (manifest.dirty) {
+                    writeManifest(target, manifest);
+                }
+                long ms = (System.nanoTime() - start) / 1_000_000L;
+                STATUS.put(spec.id(), "ready (" + manifest.files.size() + " files validated in " + ms + " ms)");
+                VoxMagicMode.LOGGER.info("Vosk model at {} validated in {} ms", target, ms);
+                return target;
             }
+            VoxMagicMode.LOGGER.warn("Repairing {} damaged Vosk model files: {}", damaged.size(), damaged);
+            source = requireArchive(spec, source, cfgDir);
+            extract(source, target, manifest.files, damaged);
+            STATUS.put(spec.id(), "ready (repaired " + damaged.size() + " files)");
+        } else {
+            source = requireArchive(spec, source, cfgDir);
+            deleteRecursively(target);
+            Files.createDirectories(target);
+            manifest = new Manifest(source.id, new LinkedHashMap<>());
+            extract(source, target, manifest.files, null);
+            STATUS.put(spec.id(), "ready (extracted " + manifest.files.size() + " files)");
+        }
+        writeManifest(target, manifest);
+        if (Files.notExists(target.resolve("am"))) {
+            throw new IOException("Vosk model missing; expected files under " + target);
         }
+        long ms = (System.nanoTime() - start) / 1_000_000L;
+        VoxMagicMode.LOGGER.info("Vosk model prepared at {} in {} ms", target, ms);
+        return target;
+    }
 
-        if (zipToUse == null) {
-            Path cached = cfgDir.resolve(CACHED_ZIP_NAME);
-            if (Files.exists(cached) && Files.isRegularFile(cached)) {
-                zipToUse = cached;
+    /**
+     * Streams the archive once, writing every entry ({@code only == null}) or just the named
+     * ones, and records size/CRC/mtime for what was written.
+     */
+    private static void extract(ModelSource source, Path target, Map<String, ManifestEntry> manifest, Set<String> only) throws IOException {
+        byte[] buf = new byte[64 * 1024];
+        try (ZipInputStream zip = new ZipInputStream(source.stream)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                String rel = stripRoot(entry.getName());
+                if (rel.isEmpty() || entry.isDirectory() || (only != null && !only.contains(rel))) {
+                    continue;
+                }
+                Path out = target.resolve(rel).normalize();
+                if (!out.startsWith(target)) {
+                    throw new IOException("Zip entry outside dest dir: " + entry.getName());
+                }
+                Files.createDirectories(out.getParent());
+                CRC32 crc = new CRC32();
+                long size = 0L;
+                try (OutputStream os = Files.newOutputStream(out)) {
+                    int n;
+                    while ((n = zip.read(buf)) > 0) {
+                        os.write(buf, 0, n);
+                        crc.update(buf, 0, n);
+                        size += n;
+                        source.reportProgress();
+                    }
+                }
+                manifest.put(rel, new ManifestEntry(size, crc.getValue(), Files.getLastModifiedTime(out).toMillis()));
+            }
+        }
+    }
+
+    /**
+     * Size mismatch or a missing file means damage; a changed mtime triggers a CRC check over a
+     * memory-mapped view, and a matching CRC just refreshes the recorded mtime.
+     */
+    private static Set<String> validate(Path target, Manifest manifest) throws IOException {
+        Set<String> damaged = new HashSet<>();
+        for (Map.Entry<String, ManifestEntry> e : manifest.files.entrySet()) {
+            Path file = target.resolve(e.getKey());
+            ManifestEntry expected = e.getValue();
+            if (!Files.isRegularFile(file) || Files.size(file) != expected.size) {
+                damaged.add(e.getKey());
+                continue;
+            }
+            long mtime = Files.getLastModifiedTime(file).toMillis();
+            if (mtime == expected.mtime) {
+                continue;
+            }
+            if (crc32(file) == expected.crc) {
+                e.setValue(new ManifestEntry(expected.size, expected.crc, mtime));
+                manifest.dirty = true;
             } else {
-                zipToUse = downloadModel(cfgDir);
+                damaged.add(e.getKey());
             }
         }
+        return damaged;
+    }
 
-        if (zipToUse != null) {
-            unzip(zipToUse, cfgDir);
-            if (tempZip) {
-                Files.deleteIfExists(zipToUse);
+    private static long crc32(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            for (long pos = 0; pos < size; pos += Integer.MAX_VALUE) {
+                MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(Integer.MAX_VALUE, size - pos));
+                crc.update(map);
             }
         }
+        return crc.getValue();
+    }
 
-        try (DirectoryStream<Path> ds = Files.newDirectoryStream(cfgDir)) {
-            for (Path p : ds) {
-                if (Files.isDirectory(p) && p.getFileName().toString().startsWith("vosk-model-small-ru") && !p.getFileName().toString().equals(TARGET_DIR_NAME)) {
-                    if (Files.exists(target)) deleteRecursively(target);
-                    Files.move(p, target, StandardCopyOption.REPLACE_EXISTING);
-                    break;
+    /** Returns the recorded manifest, or {@code null} if absent or written for another archive. */
+    private static Manifest readManifest(Path target, ModelSource source) {
+        Path file = target.resolve(MANIFEST_NAME);
+        if (Files.notExists(file)) {
+            return null;
+        }
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (lines.isEmpty() || !lines.get(0).startsWith(MANIFEST_HEADER)) {
+                return null;
+            }
+            String recordedId = lines.get(0).substring(MANIFEST_HEADER.length());
+            if (source.id != null && !recordedId.equals(source.id)) {
+                VoxMagicMode.LOGGER.info("Bundled Vosk model changed ({} -> {}); re-extracting", recordedId, source.id);
+                return null;
+            }
+            Map<String, ManifestEntry> files = new LinkedHashMap<>();
+            for (String line : lines.subList(1, lines.size())) {
+                String[] parts = line.split(" ", 4);
+                if (parts.length == 4) {
+                    files.put(parts[3], new ManifestEntry(Long.parseLong(parts[0]), Long.parseLong(parts[1], 16), Long.parseLong(parts[2])));
                 }
             }
+            return files.isEmpty() ? null : new Manifest(recordedId, files);
+        } catch (Exception e) {
+            VoxMagicMode.LOGGER.warn("Ignoring unreadable Vosk manifest {}", file, e);
+            return null;
         }
+    }
 
-        if (!Files.isDirectory(target) || Files.notExists(target.resolve("am"))) {
-            throw new IOException("Vosk model missing; expected files under " + target);
+    private static void writeManifest(Path target, Manifest manifest) throws IOException {
+        Path tmp = target.resolve(MANIFEST_NAME + ".tmp");
+        try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            w.write(MANIFEST_HEADER + manifest.sourceId);
+            w.newLine();
+            for (Map.Entry<String, ManifestEntry> e : manifest.files.entrySet()) {
+                ManifestEntry m = e.getValue();
+                w.write(m.size + " " + Long.toHexString(m.crc) + " " + m.mtime + " " + e.getKey());
+                w.newLine();
+            }
+        }
+        Files.move(tmp, target.resolve(MANIFEST_NAME), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Bundled resource first, then a previously downloaded zip. With neither, the source has no
+     * stream and the download is deferred to {@link #requireArchive} so a valid cache never
+     * touches the network.
+     */
+    private static ModelSource openSource(ModelSpec spec, Path cfgDir) throws IOException {
+        URL url = spec.resourceZip() != null ? VoskModelManager.class.getResource(spec.resourceZip()) : null;
+        if (url != null) {
+            long length = url.openConnection().getContentLengthLong();
+            return new ModelSource(spec.id(), url.openStream(), length, "resource:" + length);
         }
+        Path cached = cfgDir.resolve(spec.dirName() + CACHED_ZIP_SUFFIX);
+        if (Files.isRegularFile(cached)) {
+            long length = Files.size(cached);
+            return new ModelSource(spec.id(), Files.newInputStream(cached), length, "download:" + length);
+        }
+        return new ModelSource(spec.id(), null, 0L, null);
+    }
+
+    private static ModelSource requireArchive(ModelSpec spec, ModelSource source, Path cfgDir) throws IOException {
+        if (source.stream != null) {
+            return source;
+        }
+        STATUS.put(spec.id(), "downloading");
+        Path downloaded = spec.downloadUri() != null ? downloadModel(spec, cfgDir) : null;
+        if (downloaded == null) {
+            throw new IOException("Vosk model '" + spec.id() + "' not bundled and download failed");
+        }
+        long length = Files.size(downloaded);
+        return new ModelSource(spec.id(), Files.newInputStream(downloaded), length, "download:" + length);
+    }
 
-        return ensureWindowsCompatiblePath(target);
+    /** Drops the archive's top-level directory ({@code vosk-model-small-ru-0.22/...}). */
+    private static String stripRoot(String name) {
+        int slash = name.indexOf('/');
+        return slash >= 0 ? name.substring(slash + 1) : name;
     }
 
-    private static Path downloadModel(Path cfgDir) {
+    /**
+     * The extraction base. On Windows with a non-ASCII config path (which Vosk cannot open) the
+     * model is extracted straight to the short-path alias or an ASCII fallback instead of being
+     * extracted and then copied again.
+     */
+    private static Path resolveModelBase() throws IOException {
+        Path cfgDir = FabricLoader.getInstance().getConfigDir().resolve("voxmagicmode").resolve("vosk");
+        Files.createDirectories(cfgDir);
+        if (!Platform.isWindows() || isAsciiPath(cfgDir)) {
+            return cfgDir;
+        }
+        String shortVariant = tryGetShortPath(cfgDir);
+        if (shortVariant != null && isAsciiPath(shortVariant)) {
+            VoxMagicMode.LOGGER.info("Using short path {} for Vosk model directory {}", shortVariant, cfgDir);
+            return Path.of(shortVariant);
+        }
+        Path fallback = resolveFallbackBase();
+        VoxMagicMode.LOGGER.info("Extracting Vosk model to ASCII-safe location {}", fallback);
+        Files.createDirectories(fallback);
+        return fallback;
+    }
+
+    private static Path downloadModel(ModelSpec spec, Path cfgDir) {
         try {
-            VoxMagicMode.LOGGER.info("Downloading Vosk model from {}", FALLBACK_MODEL_URI);
+            VoxMagicMode.LOGGER.info("Downloading Vosk model from {}", spec.downloadUri());
             HttpClient client = HttpClient.newBuilder()
                     .followRedirects(HttpClient.Redirect.NORMAL)
                     .connectTimeout(Duration.ofSeconds(10))
                     .build();
-            HttpRequest request = HttpRequest.newBuilder(FALLBACK_MODEL_URI)
+            HttpRequest request = HttpRequest.newBuilder(spec.downloadUri())
                     .timeout(Duration.ofMinutes(5))
                     .GET()
                     .build();
             Path temp = Files.createTempFile("vosk-download-", ".zip");
             HttpResponse<Path> response = client.send(request, HttpResponse.BodyHandlers.ofFile(temp));
             if (response.statusCode() >= 200 && response.statusCode() < 300) {
-                Path dest = cfgDir.resolve(CACHED_ZIP_NAME);
+                Path dest = cfgDir.resolve(spec.dirName() + CACHED_ZIP_SUFFIX);
                 Files.createDirectories(dest.getParent());
                 Files.move(temp, dest, StandardCopyOption.REPLACE_EXISTING);
                 VoxMagicMode.LOGGER.info("Saved Vosk model to {}", dest);
@@ -98,56 +333,11 @@ public final class VoskModelManager {
             VoxMagicMode.LOGGER.warn("Failed to download Vosk model; HTTP status {}", response.statusCode());
             Files.deleteIfExists(temp);
         } catch (Exception e) {
-            VoxMagicMode.LOGGER.warn("Could not download Vosk model from {}: {}", FALLBACK_MODEL_URI, e.toString());
+            VoxMagicMode.LOGGER.warn("Could not download Vosk model from {}: {}", spec.downloadUri(), e.toString());
         }
         return null;
     }
 
-    private static void unzip(Path zipFile, Path destDir) throws IOException {
-        try (ZipFile zip = new ZipFile(zipFile.toFile())) {
-            Enumeration<? extends ZipEntry> entries = zip.entries();
-            while (entries.hasMoreElements()) {
-                ZipEntry e = entries.nextElement();
-                Path outPath = destDir.resolve(e.getName()).normalize();
-                if (!outPath.startsWith(destDir)) throw new IOException("Zip entry outside dest dir: " + e.getName());
-                if (e.isDirectory()) {
-                    Files.createDirectories(outPath);
-                } else {
-                    Files.createDirectories(outPath.getParent());
-                    try (InputStream is = zip.getInputStream(e)) {
-                        Files.copy(is, outPath, StandardCopyOption.REPLACE_EXISTING);
-                    }
-                }
-            }
-        }
-    }
-
-
-    private static Path ensureWindowsCompatiblePath(Path target) throws IOException {
-        if (!Platform.isWindows()) {
-            return target;
-        }
-        if (isAsciiPath(target)) {
-            return target;
-        }
-        String shortVariant = tryGetShortPath(target);
-        if (shortVariant != null && isAsciiPath(shortVariant)) {
-            VoxMagicMode.LOGGER.info("Using short path {} for Vosk model directory {}", shortVariant, target);
-            return Path.of(shortVariant);
-        }
-        Path fallbackBase = resolveFallbackBase();
-        Files.createDirectories(fallbackBase);
-        Path fallbackTarget = fallbackBase.resolve(TARGET_DIR_NAME);
-        if (!Files.isDirectory(fallbackTarget) || Files.notExists(fallbackTarget.resolve("am"))) {
-            VoxMagicMode.LOGGER.info("Copying Vosk model to ASCII-safe location {}", fallbackTarget);
-            if (Files.exists(fallbackTarget)) {
-                deleteRecursively(fallbackTarget);
-            }
-            copyRecursively(target, fallbackTarget);
-        }
-        return fallbackTarget;
-    }
-
     private static boolean isAsciiPath(Path path) {
         return isAsciiPath(path.toString());
     }
@@ -181,37 +371,81 @@ public final class VoskModelManager {
         return Path.of("C:/", "VoxMagicMode", "vosk");
     }
 
-    private static void copyRecursively(Path source, Path dest) throws IOException {
-        try (var stream = Files.walk(source)) {
-            stream.forEach(path -> {
-                try {
-                    Path relative = source.relativize(path);
-                    Path target = dest.resolve(relative);
-                    if (Files.isDirectory(path)) {
-                        Files.createDirectories(target);
-                    } else {
-                        Files.createDirectories(target.getParent());
-                        Files.copy(path, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
-                    }
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
-            });
-        } catch (RuntimeException e) {
-            if (e.getCause() instanceof IOException io) {
-                throw io;
-            }
-            throw e;
-        }
-    }
     private static void deleteRecursively(Path p) throws IOException {
         if (Files.notExists(p)) return;
         Files.walk(p)
                 .sorted((a, b) -> b.getNameCount() - a.getNameCount())
                 .forEach(path -> { try { Files.deleteIfExists(path); } catch (IOException ignored) {} });
     }
-}
 
+    private record ManifestEntry(long size, long crc, long mtime) {}
+
+    /** Archive id plus per-file entries; {@code dirty} once a touched-but-intact file got a new mtime. */
+    private static final class Manifest {
+        final String sourceId;
+        final Map<String, ManifestEntry> files;
+        boolean dirty = false;
 
+        Manifest(String sourceId, Map<String, ManifestEntry> files) {
+            this.sourceId = sourceId;
+            this.files = files;
+        }
+    }
 
+    /** The archive stream plus a byte counter for progress. */
+    private static final class ModelSource implements AutoCloseable {
+        final String specId;
+        final InputStream stream;
+        final long length;
+        final String id;
+        private long read = 0L;
+        private int lastPercent = -1;
+
+        ModelSource(String specId, InputStream raw, long length, String id) {
+            this.specId = specId;
+            this.stream = raw == null ? null : new FilterInputStream(raw) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0) {
+                        read++;
+                    }
+                    return b;
+                }
 
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    if (n > 0) {
+                        read += n;
+                    }
+                    return n;
+                }
+            };
+            this.length = length;
+            this.id = id;
+        }
+
+        void reportProgress() {
+            if (length <= 0) {
+                return;
+            }
+            int percent = (int) Math.min(100L, read * 100L / length);
+            if (percent == lastPercent) {
+                return;
+            }
+            lastPercent = percent;
+            STATUS.put(specId, "extracting " + percent + "%");
+            if (percent % 10 == 0) {
+                VoxMagicMode.LOGGER.info("Extracting Vosk model {}: {}%", specId, percent);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (stream != null) {
+                stream.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.voxmagic.client.voice;
+
+import com.voxmagic.VoxMagicMode;
+import com.voxmagic.common.config.ModConfig;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The models the client knows about ({@link ModelSpec#RU_SMALL}, {@link ModelSpec#EN_SMALL} and
+ * any {@code voice.model_dirs} entries) and the ones currently in memory. A model is loaded on
+ * first {@link #acquire}, shared by every recognizer through refcounted {@link Lease}s, and
+ * closed once nothing holds it and it has been idle for {@code voice.model_idle_timeout_sec}.
+ * The active model ({@code voice.model}) and the optional dual-language secondary
+ * ({@code voice.secondary_model}) are never evicted.
+ */
+public final class VoskModelRegistry {
+    private static final long EVICT_CHECK_SECONDS = 15L;
+    private static final long CLOSE_WAIT_MS = 2000L;
+
+    private static final Map<String, Loaded> LOADED = new ConcurrentHashMap<>();
+    private static final List<Runnable> SWITCH_LISTENERS = new CopyOnWriteArrayList<>();
+    private static final ScheduledExecutorService EVICTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "VoxModelEvict");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static Map<String, ModelSpec> specs;
+    private static int specsRevision = -1;
+
+    static {
+        EVICTOR.scheduleWithFixedDelay(VoskModelRegistry::evictIdle, EVICT_CHECK_SECONDS, EVICT_CHECK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private VoskModelRegistry() {}
+
+    /** Built-in specs followed by {@code voice.model_dirs}; rebuilt when the config changes. */
+    public static synchronized List<ModelSpec> specs() {
+        return new ArrayList<>(specMap().values());
+    }
+
+    public static synchronized ModelSpec spec(String id) {
+        return id == null ? null : specMap().get(id);
+    }
+
+    /** The configured model, falling back to the bundled one for unknown ids. */
+    public static ModelSpec active() {
+        ModelSpec spec = spec(ModConfig.INSTANCE.voice.model);
+        return spec != null ? spec : ModelSpec.RU_SMALL;
+    }
+
+    /** The second model decoded in parallel with the active one, or {@code null} when dual decoding is off. */
+    public static ModelSpec secondary() {
+        String id = ModConfig.INSTANCE.voice.secondary_model;
+        return id == null || id.isBlank() ? null : spec(id);
+    }
+
+    /**
+     * Makes {@code spec} the active model: saves it to the config, then extracts and loads it in
+     * the background and only afterwards notifies the switch listeners, so a running recognizer
+     * swaps over without waiting on the load.
+     */
+    public static void setActive(ModelSpec spec) {
+        ModConfig.INSTANCE.voice.model = spec.id();
+        ModConfig.save();
+        VoxMagicMode.LOGGER.info("Switching Vosk model to {}", spec.id());
+        warmUpAsync(spec).thenRun(VoskModelRegistry::notifySwitch);
+    }
+
+    /** Turns dual-language decoding on with {@code spec} as the second lane, or off for {@code null}. */
+    public static void setSecondary(ModelSpec spec) {
+        ModConfig.INSTANCE.voice.secondary_model = spec == null ? "" : spec.id();
+        ModConfig.save();
+        VoxMagicMode.LOGGER.info("Secondary Vosk model set to {}", spec == null ? "none" : spec.id());
+        if (spec == null) {
+            notifySwitch();
+        } else {
+            warmUpAsync(spec).thenRun(VoskModelRegistry::notifySwitch);
+        }
+    }
+
+    private static void notifySwitch() {
+        for (Runnable listener : SWITCH_LISTENERS) {
+            listener.run();
+        }
+    }
+
+    /** Called (on a background thread) once a newly activated model is loaded. */
+    public static void addSwitchListener(Runnable listener) {
+        SWITCH_LISTENERS.add(listener);
+    }
+
+    /** Extracts and loads the configured models in the background so the first cast does not pay for it. */
+    public static void warmUpAsync() {
+        warmUpAsync(active());
+        ModelSpec secondary = secondary();
+        if (secondary != null) {
+            warmUpAsync(secondary);
+        }
+    }
+
+    private static CompletableFuture<Void> warmUpAsync(ModelSpec spec) {
+        return VoskModelManager.prepareAsync(spec).thenAcceptAsync(path -> {
+            try (Lease ignored = acquire(spec)) {
+                // Loaded; released immediately and kept by the idle timer.
+            } catch (Throwable t) {
+                VoxMagicMode.LOGGER.warn("Vosk model {} warm-up failed; it will be retried on first cast", spec.id(), t);
+            }
+        }, r -> {
+            Thread t = new Thread(r, "VoxVoskWarmup");
+            t.setDaemon(true);
+            t.start();
+        }).exceptionally(t -> {
+            VoxMagicMode.LOGGER.warn("Vosk model {} could not be prepared", spec.id(), t);
+            return null;
+        });
+    }
+
+    /** Returns a lease on the loaded {@code spec}, extracting and loading it if needed. Blocks. */
+    public static Lease acquire(ModelSpec spec) throws IOException {
+        Path path = VoskModelManager.ensureModelExtracted(spec);
+        Loaded loaded = LOADED.computeIfAbsent(spec.id(), id -> new Loaded(spec));
+        synchronized (loaded) {
+            if (loaded.model == null) {
+                long start = System.nanoTime();
+                loaded.model = VoskBindings.loadModel(path);
+                loaded.path = path;
+                long ms = (System.nanoTime() - start) / 1_000_000L;
+                VoiceStats.recordModelLoad(ms);
+                VoxMagicMode.LOGGER.info("Loaded Vosk model {} from {} in {} ms", spec.id(), path, ms);
+            }
+            loaded.refs++;
+            return new Lease(loaded, loaded.model);
+        }
+    }
+
+    public static boolean isLoaded(ModelSpec spec) {
+        Loaded loaded = LOADED.get(spec.id());
+        if (loaded == null) {
+            return false;
+        }
+        synchronized (loaded) {
+            return loaded.model != null;
+        }
+    }
+
+    /** One line per known model: id, language, cache state, residency. */
+    public static List<String> describe() {
+        ModelSpec active = active();
+        ModelSpec secondary = secondary();
+        List<String> lines = new ArrayList<>();
+        for (ModelSpec spec : specs()) {
+            String marker = spec.id().equals(active.id()) ? "* " : (secondary != null && spec.id().equals(secondary.id()) ? "+ " : "  ");
+            String resident = "unloaded";
+            Loaded loaded = LOADED.get(spec.id());
+            if (loaded != null) {
+                synchronized (loaded) {
+                    if (loaded.model != null) {
+                        resident = "loaded, " + loaded.refs + " in use";
+                    }
+                }
+            }
+            lines.add(marker + spec.id() + " [" + spec.language() + ", " + spec.size() + "] "
+                    + VoskModelManager.status(spec) + "; " + resident);
+        }
+        return lines;
+    }
+
+    /**
+     * Frees every loaded model on shutdown. Waits a short while for outstanding leases; a model
+     * still leased after that is left to the process exit rather than freed under a decoder.
+     */
+    public static void close() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_WAIT_MS);
+        for (Loaded loaded : LOADED.values()) {
+            synchronized (loaded) {
+                long left;
+                while (loaded.refs > 0 && (left = deadline - System.nanoTime()) > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(loaded, left);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                if (loaded.refs > 0) {
+                    VoxMagicMode.LOGGER.warn("Vosk model {} still in use at shutdown; not freeing it", loaded.spec.id());
+                    continue;
+                }
+                loaded.closeModel();
+            }
+        }
+    }
+
+    private static void evictIdle() {
+        long timeoutNanos = Math.max(0, ModConfig.INSTANCE.voice.model_idle_timeout_sec) * 1_000_000_000L;
+        String activeId = active().id();
+        ModelSpec secondary = secondary();
+        long now = System.nanoTime();
+        for (Loaded loaded : LOADED.values()) {
+            if (loaded.spec.id().equals(activeId) || (secondary != null && loaded.spec.id().equals(secondary.id()))) {
+                continue;
+            }
+            synchronized (loaded) {
+                if (loaded.model != null && loaded.refs == 0 && now - loaded.idleSinceNanos >= timeoutNanos) {
+                    VoxMagicMode.LOGGER.info("Evicting idle Vosk model {}", loaded.spec.id());
+                    loaded.closeModel();
+                }
+            }
+        }
+    }
+
+    private static Map<String, ModelSpec> specMap() {
+        int revision = ModConfig.revision();
+        if (specs == null || specsRevision != revision) {
+            Map<String, ModelSpec> map = new LinkedHashMap<>();
+            map.put(ModelSpec.RU_SMALL.id(), ModelSpec.RU_SMALL);
+            map.put(ModelSpec.EN_SMALL.id(), ModelSpec.EN_SMALL);
+            Map<String, String> dirs = ModConfig.INSTANCE.voice.model_dirs;
+            if (dirs != null) {
+                for (Map.Entry<String, String> e : dirs.entrySet()) {
+                    if (e.getKey() != null && e.getValue() != null && !e.getValue().isBlank()) {
+                        map.put(e.getKey(), ModelSpec.local(e.getKey(), Path.of(e.getValue())));
+                    }
+                }
+            }
+            specs = map;
+            specsRevision = revision;
+        }
+        return specs;
+    }
+
+    /** Guarded by its own monitor. */
+    private static final class Loaded {
+        final ModelSpec spec;
+        SpeechModel model;
+        Path path;
+        int refs = 0;
+        long idleSinceNanos = System.nanoTime();
+
+        Loaded(ModelSpec spec) {
+            this.spec = spec;
+        }
+
+        void closeModel() {
+            if (model == null) {
+                return;
+            }
+            try {
+                model.close();
+            } catch (Throwable ignored) {}
+            VoxMagicMode.LOGGER.info("Released Vosk model {} ({})", spec.id(), path);
+            model = null;
+            path = null;
+        }
+    }
+
+    /** A reference to a loaded model; close it when the recognizers created from it are closed. */
+    public static final class Lease implements AutoCloseable {
+        private final Loaded loaded;
+        private final SpeechModel model;
+        private boolean released = false;
+
+        private Lease(Loaded loaded, SpeechModel model) {
+            this.loaded = loaded;
+            this.model = model;
+        }
+
+        public SpeechModel model() {
+            return model;
+        }
+
+        public ModelSpec spec() {
+            return loaded.spec;
+        }
+
+        @Override
+        public void close() {
+            synchronized (loaded) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                if (--loaded.refs == 0) {
+                    loaded.idleSinceNanos = System.nanoTime();
+                    loaded.notifyAll();
+                }
+            }
+        }
+    }
+}
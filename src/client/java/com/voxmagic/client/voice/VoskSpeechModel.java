@@ -0,0 +1,93 @@
+package com.voxmagic.client.voice;
+
+import org.vosk.LibVosk;
+import org.vosk.LogLevel;
+import org.vosk.Model;
+import org.vosk.Recognizer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+final class VoskSpeechModel implements SpeechModel {
+    private static boolean logLevelSet = false;
+
+    private final Model model;
+
+    private VoskSpeechModel(Model model) {
+        this.model = model;
+    }
+
+    static synchronized VoskSpeechModel load(Path path) throws IOException {
+        if (!logLevelSet) {
+            logLevelSet = true;
+            try {
+                LibVosk.setLogLevel(LogLevel.INFO);
+            } catch (Throwable ignored) {}
+        }
+        return new VoskSpeechModel(new Model(path.toString()));
+    }
+
+    @Override
+    public SpeechRecognizer newRecognizer(float sampleRate, String grammar) throws IOException {
+        Recognizer rec = grammar != null ? new Recognizer(model, sampleRate, grammar) : new Recognizer(model, sampleRate);
+        return new VoskRecognizer(rec);
+    }
+
+    @Override
+    public void close() {
+        model.close();
+    }
+
+    private static final class VoskRecognizer implements SpeechRecognizer {
+        private final Recognizer rec;
+
+        VoskRecognizer(Recognizer rec) {
+            this.rec = rec;
+        }
+
+        @Override
+        public boolean acceptWaveForm(short[] data, int len) {
+            return rec.acceptWaveForm(data, len);
+        }
+
+        @Override
+        public String getResult() {
+            return rec.getResult();
+        }
+
+        @Override
+        public String getPartialResult() {
+            return rec.getPartialResult();
+        }
+
+        @Override
+        public String getFinalResult() {
+            return rec.getFinalResult();
+        }
+
+        @Override
+        public void reset() {
+            rec.reset();
+        }
+
+        @Override
+        public void setGrammar(String grammar) {
+            rec.setGrammar(grammar);
+        }
+
+        @Override
+        public void setWords(boolean words) {
+            rec.setWords(words);
+        }
+
+        @Override
+        public void setPartialWords(boolean partialWords) {
+            rec.setPartialWords(partialWords);
+        }
+
+        @Override
+        public void close() {
+            rec.close();
+        }
+    }
+}
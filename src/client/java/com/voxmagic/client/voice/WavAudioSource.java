@@ -0,0 +1,136 @@
+package com.voxmagic.client.voice;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Replays a recording through the same path as the microphone. WAV (any PCM layout JavaSound
+ * can convert) is downmixed to mono 16-bit; {@code .raw}/{@code .pcm} files are read as
+ * 16 kHz mono little-endian. In real-time mode reads are paced to the recording's clock,
+ * otherwise the file is decoded as fast as the pipeline can go and {@link #clockNanos()}
+ * reports the stream position.
+ */
+public final class WavAudioSource implements AudioSource {
+    private static final float RAW_SAMPLE_RATE = 16000f;
+
+    private final InputStream in;
+    private final float sampleRate;
+    private final int channels;
+    private final boolean realTime;
+    private byte[] bytes = new byte[0];
+    private long position = 0L;
+    private long startNanos = -1L;
+    private boolean ended = false;
+
+    private WavAudioSource(InputStream in, float sampleRate, int channels, boolean realTime) {
+        this.in = in;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.realTime = realTime;
+    }
+
+    public static WavAudioSource open(Path file, boolean realTime) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".raw") || name.endsWith(".pcm")) {
+            return new WavAudioSource(new BufferedInputStream(Files.newInputStream(file)), RAW_SAMPLE_RATE, 1, realTime);
+        }
+        try {
+            AudioInputStream source = AudioSystem.getAudioInputStream(file.toFile());
+            AudioFormat format = source.getFormat();
+            AudioFormat pcm = new AudioFormat(format.getSampleRate(), 16, format.getChannels(), true, false);
+            AudioInputStream converted = AudioSystem.getAudioInputStream(pcm, source);
+            return new WavAudioSource(converted, pcm.getSampleRate(), pcm.getChannels(), realTime);
+        } catch (UnsupportedAudioFileException | IllegalArgumentException e) {
+            throw new IOException("Unsupported audio file " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public float sampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public int read(short[] dst, int len, long timeoutNanos) throws InterruptedException {
+        if (ended) {
+            return -1;
+        }
+        int frameBytes = 2 * channels;
+        int want = len * frameBytes;
+        if (bytes.length < want) {
+            bytes = new byte[want];
+        }
+        int got = 0;
+        try {
+            while (got < want) {
+                int n = in.read(bytes, got, want - got);
+                if (n < 0) {
+                    ended = true;
+                    break;
+                }
+                got += n;
+            }
+        } catch (IOException e) {
+            ended = true;
+        }
+        int frames = got / frameBytes;
+        if (frames == 0) {
+            return -1;
+        }
+        for (int i = 0; i < frames; i++) {
+            int sum = 0;
+            for (int c = 0; c < channels; c++) {
+                int off = (i * channels + c) * 2;
+                sum += (short) ((bytes[off] & 0xFF) | (bytes[off + 1] << 8));
+            }
+            dst[i] = (short) (sum / channels);
+        }
+        position += frames;
+        if (realTime) {
+            pace();
+        }
+        return frames;
+    }
+
+    @Override
+    public long clockNanos() {
+        return realTime ? System.nanoTime() : streamNanos();
+    }
+
+    /** Seconds of audio read so far. */
+    public double seconds() {
+        return position / (double) sampleRate;
+    }
+
+    @Override
+    public void close() {
+        try {
+            in.close();
+        } catch (IOException ignored) {}
+    }
+
+    private void pace() throws InterruptedException {
+        long now = System.nanoTime();
+        if (startNanos < 0) {
+            startNanos = now;
+        }
+        long due = startNanos + streamNanos();
+        while (now < due) {
+            long wait = due - now;
+            Thread.sleep(wait / 1_000_000L, (int) (wait % 1_000_000L));
+            now = System.nanoTime();
+        }
+    }
+
+    private long streamNanos() {
+        return (long) (position * 1_000_000_000.0 / sampleRate);
+    }
+}
@@ -4,12 +4,16 @@ import com.voxmagic.common.config.ModConfig;
 import com.voxmagic.content.ModItems;
 import com.voxmagic.network.NetworkInit;
 import com.voxmagic.server.ManaManager;
+import com.voxmagic.server.ManaPersistence;
 import com.voxmagic.server.SpellAccessManager;
+import com.voxmagic.server.SpellExecutor;
 import com.voxmagic.server.TemporaryBlockManager;
+import com.voxmagic.server.TickScheduler;
 import com.voxmagic.server.VoiceSpellTracker;
 import com.voxmagic.server.VoxMagicCommands;
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
 import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
 import org.slf4j.Logger;
@@ -25,23 +29,39 @@ public class VoxMagicMode implements ModInitializer {
         ModConfig.load();
         SpellAccessManager.load();
         ModItems.register();
+        SpellExecutor.registerBuiltins();
         NetworkInit.registerC2S();
+        NetworkInit.registerS2C();
 
         CommandRegistrationCallback.EVENT.register((dispatcher, registryAccess, environment) -> VoxMagicCommands.register(dispatcher));
 
         ServerTickEvents.END_SERVER_TICK.register(server -> {
+            TickScheduler.tick(server);
             ManaManager.tick(server);
-            TemporaryBlockManager.tick(server);
-            com.voxmagic.server.GhostManager.tick(server);
+        });
+        ServerLifecycleEvents.SERVER_STARTED.register(server -> {
+            TemporaryBlockManager.onServerStarted(server);
+            ManaPersistence.open(server);
+        });
+        ServerLifecycleEvents.SERVER_STOPPING.register(ManaManager::saveOnline);
+        ServerLifecycleEvents.SERVER_STOPPED.register(server -> {
+            TickScheduler.clear();
+            TemporaryBlockManager.onServerStopped();
+            ManaPersistence.close();
+            ManaManager.clear();
         });
 
         ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> {
             com.voxmagic.server.GhostManager.onJoin(handler.getPlayer());
             VoiceSpellTracker.clear(handler.getPlayer());
+            NetworkInit.onJoin(handler.getPlayer(), server);
+            ManaManager.onJoin(handler, server);
         });
         ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
             if (handler.player != null) {
                 VoiceSpellTracker.clear(handler.player);
+                NetworkInit.onDisconnect(handler.player, server);
+                ManaManager.onDisconnect(handler, server);
             }
         });
     }
@@ -47,6 +47,22 @@ public final class ModConfig {
         public String mic_device = ""; 
         public int sample_rate = 16000;
         public boolean debug_chat = true;
+        public boolean shared_cast_dedupe = true;
+        public boolean use_grammar = true;
+        public boolean vad_enabled = true;
+        public int vad_rms_threshold = 400;
+        public int vad_hangover_ms = 400;
+        public int vad_preroll_ms = 250;
+        public int partial_stability_ms = 150;
+        public boolean dc_filter = true;
+        public boolean noise_suppression = true;
+        public boolean agc_enabled = true;
+        public int agc_target_rms = 3000;
+        public double agc_max_gain = 8.0;
+        public String model = "ru-small";
+        public String secondary_model = "";
+        public Map<String, String> model_dirs = new HashMap<>();
+        public int model_idle_timeout_sec = 300;
     }
 
     public ManaCfg mana = new ManaCfg();
@@ -56,8 +72,19 @@ public final class ModConfig {
     public VoiceCfg voice = new VoiceCfg();
 
     public static ModConfig INSTANCE = new ModConfig();
+    private static volatile int revision = 0;
+
+    /** Bumped whenever the config is loaded or saved so derived caches know to rebuild. */
+    public static int revision() {
+        return revision;
+    }
 
     public static void load() {
+        read();
+        revision++;
+    }
+
+    private static void read() {
         Path cfgDir = FabricLoader.getInstance().getConfigDir();
         Path file = cfgDir.resolve(FILE_NAME);
         if (Files.notExists(file)) {
@@ -98,6 +125,7 @@ public final class ModConfig {
     }
 
     public static void save() {
+        revision++;
         Path cfgDir = FabricLoader.getInstance().getConfigDir();
         Path file = cfgDir.resolve(FILE_NAME);
         try {
@@ -0,0 +1,213 @@
+package com.voxmagic.common.voice;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick automaton over normalized spell phrases. {@link #find} scans a normalized
+ * transcript once and returns the earliest (then longest) phrase that sits on word
+ * boundaries; phrases added with {@code allowSubstring} may also match inside a word,
+ * but only when no word-aligned match exists.
+ */
+public final class PhraseMatcher {
+    /**
+     * A phrase hit in {@code [start, end)}. {@code complete} is {@code false} when some longer
+     * registered phrase starts with this one, so a streaming caller should wait before firing.
+     */
+    public record Match(String spellId, int start, int end, boolean complete) {}
+
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] fail;
+    private final int[] output;
+    private final int[] outputLink;
+    private final int[] patternLength;
+    private final String[] patternSpell;
+    private final boolean[] patternSubstring;
+    private final boolean[] patternComplete;
+
+    private PhraseMatcher(Builder b) {
+        int nodes = b.children.size();
+        edgeChars = new char[nodes][];
+        edgeTargets = new int[nodes][];
+        for (int i = 0; i < nodes; i++) {
+            TreeMap<Character, Integer> edges = b.children.get(i);
+            char[] cs = new char[edges.size()];
+            int[] ts = new int[edges.size()];
+            int k = 0;
+            for (Map.Entry<Character, Integer> e : edges.entrySet()) {
+                cs[k] = e.getKey();
+                ts[k] = e.getValue();
+                k++;
+            }
+            edgeChars[i] = cs;
+            edgeTargets[i] = ts;
+        }
+        output = new int[nodes];
+        for (int i = 0; i < nodes; i++) {
+            output[i] = b.terminal.get(i);
+        }
+        fail = new int[nodes];
+        outputLink = new int[nodes];
+        Arrays.fill(outputLink, -1);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int t : edgeTargets[0]) {
+            fail[t] = 0;
+            queue.add(t);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            char[] cs = edgeChars[node];
+            int[] ts = edgeTargets[node];
+            for (int k = 0; k < cs.length; k++) {
+                int child = ts[k];
+                int f = fail[node];
+                int next;
+                while ((next = edge(f, cs[k])) < 0 && f != 0) {
+                    f = fail[f];
+                }
+                fail[child] = next >= 0 && next != child ? next : 0;
+                int fc = fail[child];
+                outputLink[child] = output[fc] >= 0 ? fc : outputLink[fc];
+                queue.add(child);
+            }
+        }
+        patternLength = b.lengths.stream().mapToInt(Integer::intValue).toArray();
+        patternSpell = b.spells.toArray(new String[0]);
+        patternSubstring = new boolean[b.substring.size()];
+        for (int i = 0; i < patternSubstring.length; i++) {
+            patternSubstring[i] = b.substring.get(i);
+        }
+        patternComplete = new boolean[patternSpell.length];
+        for (int i = 0; i < patternComplete.length; i++) {
+            patternComplete[i] = edgeChars[b.nodes.get(i)].length == 0;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return patternSpell.length;
+    }
+
+    /** Returns the spell id for the best phrase in {@code normalized}, or {@code null}. */
+    public String findSpell(String normalized) {
+        Match m = find(normalized);
+        return m != null ? m.spellId() : null;
+    }
+
+    public Match find(String text) {
+        if (text == null || text.isEmpty() || patternSpell.length == 0) {
+            return null;
+        }
+        int n = text.length();
+        int bestAligned = -1, alignedStart = Integer.MAX_VALUE;
+        int bestLoose = -1, looseStart = Integer.MAX_VALUE;
+        int state = 0;
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            int next;
+            while ((next = edge(state, c)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = Math.max(next, 0);
+            boolean endsOnBoundary = i + 1 == n || text.charAt(i + 1) == ' ';
+            for (int node = output[state] >= 0 ? state : outputLink[state]; node >= 0; node = outputLink[node]) {
+                int p = output[node];
+                int start = i + 1 - patternLength[p];
+                boolean aligned = endsOnBoundary && (start == 0 || text.charAt(start - 1) == ' ');
+                if (aligned) {
+                    if (start < alignedStart || (start == alignedStart && patternLength[p] > patternLength[bestAligned])) {
+                        bestAligned = p;
+                        alignedStart = start;
+                    }
+                } else if (patternSubstring[p] && bestAligned < 0) {
+                    if (start < looseStart || (start == looseStart && patternLength[p] > patternLength[bestLoose])) {
+                        bestLoose = p;
+                        looseStart = start;
+                    }
+                }
+            }
+        }
+        if (bestAligned >= 0) {
+            return new Match(patternSpell[bestAligned], alignedStart, alignedStart + patternLength[bestAligned], patternComplete[bestAligned]);
+        }
+        if (bestLoose >= 0) {
+            return new Match(patternSpell[bestLoose], looseStart, looseStart + patternLength[bestLoose], patternComplete[bestLoose]);
+        }
+        return null;
+    }
+
+    private int edge(int node, char c) {
+        char[] cs = edgeChars[node];
+        int idx = Arrays.binarySearch(cs, c);
+        return idx >= 0 ? edgeTargets[node][idx] : -1;
+    }
+
+    public static final class Builder {
+        private final List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        private final List<Integer> terminal = new ArrayList<>();
+        private final List<Integer> lengths = new ArrayList<>();
+        private final List<String> spells = new ArrayList<>();
+        private final List<Boolean> substring = new ArrayList<>();
+        private final List<Integer> nodes = new ArrayList<>();
+        private final Map<String, Integer> byPhrase = new HashMap<>();
+
+        private Builder() {
+            newNode();
+        }
+
+        /**
+         * Adds {@code phrase} (normalized here) for {@code spellId}. The first spell registered
+         * for a phrase wins; {@code allowSubstring} lets the phrase match inside longer words.
+         */
+        public Builder add(String spellId, String phrase, boolean allowSubstring) {
+            String normalized = PhraseText.normalize(phrase);
+            if (normalized.isEmpty() || spellId == null) {
+                return this;
+            }
+            Integer existing = byPhrase.get(normalized);
+            if (existing != null) {
+                if (allowSubstring) {
+                    substring.set(existing, true);
+                }
+                return this;
+            }
+            int node = 0;
+            for (int i = 0; i < normalized.length(); i++) {
+                char c = normalized.charAt(i);
+                Integer next = children.get(node).get(c);
+                if (next == null) {
+                    next = newNode();
+                    children.get(node).put(c, next);
+                }
+                node = next;
+            }
+            int id = spells.size();
+            spells.add(spellId);
+            lengths.add(normalized.length());
+            substring.add(allowSubstring);
+            nodes.add(node);
+            terminal.set(node, id);
+            byPhrase.put(normalized, id);
+            return this;
+        }
+
+        public PhraseMatcher build() {
+            return new PhraseMatcher(this);
+        }
+
+        private int newNode() {
+            children.add(new TreeMap<>());
+            terminal.add(-1);
+            return children.size() - 1;
+        }
+    }
+}
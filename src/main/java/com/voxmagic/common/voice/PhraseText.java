@@ -0,0 +1,35 @@
+package com.voxmagic.common.voice;
+
+import java.util.Locale;
+
+/** Canonical text form shared by the client matcher, the grammar builder and the server. */
+public final class PhraseText {
+    private PhraseText() {}
+
+    /**
+     * Lower-cases, folds Cyrillic yo into ye, and collapses every run of
+     * non-alphanumeric characters into a single space with no leading or trailing space.
+     */
+    public static String normalize(String input) {
+        if (input == null || input.isEmpty()) return "";
+        String s = input.toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(s.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\u0451') {
+                c = '\u0435';
+            }
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && sb.length() > 0) {
+                    sb.append(' ');
+                }
+                sb.append(c);
+                pendingSpace = false;
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -5,6 +5,7 @@ import com.voxmagic.common.config.ModConfig;
 import com.voxmagic.server.ManaManager;
 import com.voxmagic.server.SpellAccessManager;
 import com.voxmagic.server.SpellExecutor;
+import com.voxmagic.server.SpellRegistry;
 import com.voxmagic.server.VoiceSpellTracker;
 import net.fabricmc.fabric.api.networking.v1.PayloadTypeRegistry;
 import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
@@ -17,9 +18,13 @@ import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.Text;
 import net.minecraft.util.Identifier;
 
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.List;
 
 public final class NetworkInit {
+    /** Fixed-point units per mana point, shared by the server's store and the client's HUD. */
+    public static final int MANA_SCALE = 1000;
+
     public static void registerC2S() {
         PayloadTypeRegistry.playC2S().register(SpellCastPayload.ID, SpellCastPayload.CODEC);
         ServerPlayNetworking.registerGlobalReceiver(SpellCastPayload.ID, (payload, context) -> {
@@ -29,75 +34,205 @@ public final class NetworkInit {
         });
     }
 
-    // Client S2C registration is in client-side init class
+    /** S2C payload types, registered on both sides so a dedicated server can send them; receivers are client-side. */
+    public static void registerS2C() {
+        PayloadTypeRegistry.playS2C().register(SpellTablePayload.ID, SpellTablePayload.CODEC);
+        PayloadTypeRegistry.playS2C().register(ManaParamsPayload.ID, ManaParamsPayload.CODEC);
+        PayloadTypeRegistry.playS2C().register(ManaStatePayload.ID, ManaStatePayload.CODEC);
+    }
 
     private static void onSpellCast(MinecraftServer server, ServerPlayerEntity player, SpellCastPayload payload) {
-        if (!player.getUuid().equals(payload.playerId)) {
-            VoxMagicMode.LOGGER.warn("Player {} attempted to cast as {}", player.getGameProfile().getName(), payload.playerId);
+        int spell = payload.spellId;
+        if (spell < 0 || spell >= SpellRegistry.size()) {
+            VoxMagicMode.LOGGER.warn("Player {} sent unknown spell id {}", player.getGameProfile().getName(), spell);
             return;
         }
         if (!VoiceSpellTracker.allowCast(player, payload)) {
             return;
         }
-        if (!SpellAccessManager.isSpellEnabled(player, payload.spellId)) {
-            player.sendMessage(Text.literal("[VoxMagic] \u0417\u0430\u043a\u043b\u0438\u043d\u0430\u043d\u0438\u0435 '" + payload.spellId + "' \u043e\u0442\u043a\u043b\u044e\u0447\u0435\u043d\u043e."), false);
+        String name = SpellRegistry.name(spell);
+        if (!SpellAccessManager.isSpellEnabled(player, name)) {
+            player.sendMessage(Text.literal("[VoxMagic] \u0417\u0430\u043a\u043b\u0438\u043d\u0430\u043d\u0438\u0435 '" + name + "' \u043e\u0442\u043a\u043b\u044e\u0447\u0435\u043d\u043e."), false);
             return;
         }
         if (!SpellExecutor.canCastNow(player)) return;
-        if (!ManaManager.tryConsumeForSpell(player, payload.spellId)) return;
-        boolean success = SpellExecutor.execute(player, payload);
+        if (!ManaManager.tryConsumeForSpell(player, spell)) return;
+        boolean success = SpellExecutor.execute(player, spell);
         if (!success) {
-            ManaManager.refundLast(player, payload.spellId);
+            ManaManager.refundLast(player);
         } else {
             ManaManager.markGlobalCooldown(player, (int) Math.round(ModConfig.INSTANCE.global_cooldown_sec * 20));
         }
     }
 
-    public static void sendManaSync(PlayerEntity player, int mana, int max, int cdTicks, double regenPerSec) {
+    /**
+     * Tells a joining client the spell ids to cast with. Transcripts are only asked for while
+     * someone else is online to share a phrase with, so the others are told again when the
+     * second player arrives.
+     */
+    public static void onJoin(ServerPlayerEntity player, MinecraftServer server) {
+        int others = othersOnline(player, server);
+        ServerPlayNetworking.send(player, new SpellTablePayload(SpellRegistry.names(), wantsTranscript(others + 1)));
+        if (wantsTranscript(others + 1) != wantsTranscript(others)) {
+            sendSpellTables(player, server, wantsTranscript(others + 1));
+        }
+    }
+
+    /** Stops asking the last player left for transcripts. */
+    public static void onDisconnect(ServerPlayerEntity player, MinecraftServer server) {
+        int others = othersOnline(player, server);
+        if (wantsTranscript(others) != wantsTranscript(others + 1)) {
+            sendSpellTables(player, server, wantsTranscript(others));
+        }
+    }
+
+    /** Cross-player dedupe needs transcripts, and only matters with two or more players online. */
+    private static boolean wantsTranscript(int online) {
+        return ModConfig.INSTANCE.voice.shared_cast_dedupe && online > 1;
+    }
+
+    private static int othersOnline(ServerPlayerEntity player, MinecraftServer server) {
+        int others = 0;
+        for (ServerPlayerEntity other : server.getPlayerManager().getPlayerList()) {
+            if (other != player) {
+                others++;
+            }
+        }
+        return others;
+    }
+
+    private static void sendSpellTables(ServerPlayerEntity except, MinecraftServer server, boolean wantsTranscript) {
+        SpellTablePayload table = new SpellTablePayload(SpellRegistry.names(), wantsTranscript);
+        for (ServerPlayerEntity other : server.getPlayerManager().getPlayerList()) {
+            if (other != except) {
+                ServerPlayNetworking.send(other, table);
+            }
+        }
+    }
+
+    public static void sendManaParams(PlayerEntity player, int max, int regenPerSec) {
         if (player instanceof ServerPlayerEntity spe) {
-            ServerPlayNetworking.send(spe, new ManaSyncPayload(mana, max, cdTicks, regenPerSec));
+            ServerPlayNetworking.send(spe, new ManaParamsPayload(max, regenPerSec));
         }
     }
 
+    public static void sendManaState(PlayerEntity player, int manaFixed, int cdTicks) {
+        if (player instanceof ServerPlayerEntity spe) {
+            ServerPlayNetworking.send(spe, new ManaStatePayload(manaFixed, cdTicks));
+        }
+    }
+
+    /**
+     * Fixed-point mana {@code elapsedTicks} after it was {@code manaFixed}, capped at {@code max}
+     * points. Both sides regenerate lazily through this, so the HUD matches the server between
+     * state packets.
+     */
+    public static long regenMana(long manaFixed, long elapsedTicks, int max, int regenPerSec) {
+        long cap = (long) max * MANA_SCALE;
+        if (manaFixed >= cap) {
+            return cap;
+        }
+        // MANA_SCALE / 20 ticks per second keeps a whole-number regen rate exact.
+        return Math.min(cap, manaFixed + Math.max(0L, elapsedTicks) * regenPerSec * (MANA_SCALE / 20));
+    }
+
     // Payloads
+    /**
+     * A voice cast by {@link SpellTablePayload} id. The nonce only has to grow per connection.
+     * The transcript is {@code null} unless the server asked for it in the table.
+     */
     public static final class SpellCastPayload implements CustomPayload {
         public static final Id<SpellCastPayload> ID = new Id<>(Identifier.of(VoxMagicMode.MOD_ID, "spell_cast"));
         public static final PacketCodec<RegistryByteBuf, SpellCastPayload> CODEC = new PacketCodec<>() {
             @Override public void encode(RegistryByteBuf buf, SpellCastPayload value) {
-                buf.writeUuid(value.playerId);
-                buf.writeString(value.spellId);
-                buf.writeString(value.transcript);
-                buf.writeLong(value.timestamp);
-                buf.writeLong(value.nonce);
+                buf.writeVarInt(value.spellId);
+                buf.writeVarInt(value.nonce);
+                buf.writeBoolean(value.transcript != null);
+                if (value.transcript != null) {
+                    buf.writeString(value.transcript);
+                }
             }
             @Override public SpellCastPayload decode(RegistryByteBuf buf) {
-                return new SpellCastPayload(buf.readUuid(), buf.readString(64), buf.readString(256), buf.readLong(), buf.readLong());
+                int spellId = buf.readVarInt();
+                int nonce = buf.readVarInt();
+                return new SpellCastPayload(spellId, nonce, buf.readBoolean() ? buf.readString(256) : null);
             }
         };
 
-        public final UUID playerId; public final String spellId; public final String transcript; public final long timestamp; public final long nonce;
-        public SpellCastPayload(UUID playerId, String spellId, String transcript, long timestamp, long nonce) {
-            this.playerId = playerId; this.spellId = spellId; this.transcript = transcript; this.timestamp = timestamp; this.nonce = nonce;
+        public final int spellId; public final int nonce; public final String transcript;
+        public SpellCastPayload(int spellId, int nonce, String transcript) {
+            this.spellId = spellId; this.nonce = nonce; this.transcript = transcript;
         }
         @Override public Id<? extends CustomPayload> getId() { return ID; }
     }
 
-    public static final class ManaSyncPayload implements CustomPayload {
-        public static final Id<ManaSyncPayload> ID = new Id<>(Identifier.of(VoxMagicMode.MOD_ID, "mana_sync"));
-        public static final PacketCodec<RegistryByteBuf, ManaSyncPayload> CODEC = new PacketCodec<>() {
-            @Override public void encode(RegistryByteBuf buf, ManaSyncPayload value) {
-                buf.writeVarInt(value.mana);
+    /**
+     * Spell names in {@link SpellRegistry} id order, sent on join. {@code wantsTranscript} asks the
+     * client to attach what was heard to each cast so the server can tell one phrase picked up by
+     * several microphones from separate casts; the table is sent again when that flag changes.
+     */
+    public static final class SpellTablePayload implements CustomPayload {
+        public static final Id<SpellTablePayload> ID = new Id<>(Identifier.of(VoxMagicMode.MOD_ID, "spell_table"));
+        public static final PacketCodec<RegistryByteBuf, SpellTablePayload> CODEC = new PacketCodec<>() {
+            @Override public void encode(RegistryByteBuf buf, SpellTablePayload value) {
+                buf.writeVarInt(value.names.size());
+                for (String name : value.names) {
+                    buf.writeString(name);
+                }
+                buf.writeBoolean(value.wantsTranscript);
+            }
+            @Override public SpellTablePayload decode(RegistryByteBuf buf) {
+                int count = buf.readVarInt();
+                List<String> names = new ArrayList<>(Math.min(count, 256));
+                for (int i = 0; i < count; i++) {
+                    names.add(buf.readString(64));
+                }
+                return new SpellTablePayload(names, buf.readBoolean());
+            }
+        };
+
+        public final List<String> names; public final boolean wantsTranscript;
+        public SpellTablePayload(List<String> names, boolean wantsTranscript) { this.names = names; this.wantsTranscript = wantsTranscript; }
+        @Override public Id<? extends CustomPayload> getId() { return ID; }
+    }
+
+    /** Mana pool parameters; sent on join and when the config changes. */
+    public static final class ManaParamsPayload implements CustomPayload {
+        public static final Id<ManaParamsPayload> ID = new Id<>(Identifier.of(VoxMagicMode.MOD_ID, "mana_params"));
+        public static final PacketCodec<RegistryByteBuf, ManaParamsPayload> CODEC = new PacketCodec<>() {
+            @Override public void encode(RegistryByteBuf buf, ManaParamsPayload value) {
                 buf.writeVarInt(value.max);
+                buf.writeVarInt(value.regenPerSec);
+            }
+            @Override public ManaParamsPayload decode(RegistryByteBuf buf) {
+                return new ManaParamsPayload(buf.readVarInt(), buf.readVarInt());
+            }
+        };
+
+        public final int max, regenPerSec;
+        public ManaParamsPayload(int max, int regenPerSec) { this.max = max; this.regenPerSec = regenPerSec; }
+        @Override public Id<? extends CustomPayload> getId() { return ID; }
+    }
+
+    /**
+     * Mana (fixed point, {@link #MANA_SCALE} per point) and remaining
+     * cooldown as of the tick it was sent; the client extrapolates from there with the params.
+     * Only sent when that extrapolation would go wrong: spend, refund, cooldown start.
+     */
+    public static final class ManaStatePayload implements CustomPayload {
+        public static final Id<ManaStatePayload> ID = new Id<>(Identifier.of(VoxMagicMode.MOD_ID, "mana_state"));
+        public static final PacketCodec<RegistryByteBuf, ManaStatePayload> CODEC = new PacketCodec<>() {
+            @Override public void encode(RegistryByteBuf buf, ManaStatePayload value) {
+                buf.writeVarInt(value.manaFixed);
                 buf.writeVarInt(value.cooldownTicks);
-                buf.writeDouble(value.regenPerSec);
             }
-            @Override public ManaSyncPayload decode(RegistryByteBuf buf) {
-                return new ManaSyncPayload(buf.readVarInt(), buf.readVarInt(), buf.readVarInt(), buf.readDouble());
+            @Override public ManaStatePayload decode(RegistryByteBuf buf) {
+                return new ManaStatePayload(buf.readVarInt(), buf.readVarInt());
             }
         };
 
-        public final int mana, max, cooldownTicks; public final double regenPerSec;
-        public ManaSyncPayload(int mana, int max, int cooldownTicks, double regenPerSec) { this.mana = mana; this.max = max; this.cooldownTicks = cooldownTicks; this.regenPerSec = regenPerSec; }
+        public final int manaFixed, cooldownTicks;
+        public ManaStatePayload(int manaFixed, int cooldownTicks) { this.manaFixed = manaFixed; this.cooldownTicks = cooldownTicks; }
         @Override public Id<? extends CustomPayload> getId() { return ID; }
     }
 }
@@ -0,0 +1,114 @@
+package com.voxmagic.server;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.World;
+
+import java.util.Arrays;
+
+/**
+ * Collects block changes for one world and applies them section by section with
+ * {@link #FLAGS}: clients are still told (the chunk holder coalesces all of a tick's changes in
+ * a section into one delta packet) and nothing drops. The neighbor and shape updates those flags
+ * skip run once the whole batch is written, so blocks of the same cast do not update each other
+ * half-built. Used for both placing temporary spell blocks and restoring them.
+ */
+public final class BlockBatch {
+    public static final int FLAGS = Block.NOTIFY_LISTENERS | Block.FORCE_STATE | Block.SKIP_DROPS;
+    /** One below the depth {@link World#setBlockState} starts its own updates with. */
+    private static final int UPDATE_DEPTH = 511;
+
+    private final ServerWorld world;
+    private final Long2ObjectLinkedOpenHashMap<IntArrayList> sections = new Long2ObjectLinkedOpenHashMap<>();
+    private long[] positions = new long[64];
+    private BlockState[] states = new BlockState[64];
+    private int size = 0;
+
+    public BlockBatch(ServerWorld world) {
+        this.world = world;
+    }
+
+    public void set(BlockPos pos, BlockState state) {
+        set(pos.asLong(), state);
+    }
+
+    public void set(long pos, BlockState state) {
+        if (size == positions.length) {
+            positions = Arrays.copyOf(positions, size * 2);
+            states = Arrays.copyOf(states, size * 2);
+        }
+        positions[size] = pos;
+        states[size] = state;
+        sections.computeIfAbsent(ChunkSectionPos.fromBlockPos(pos), k -> new IntArrayList()).add(size);
+        size++;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Packed position of the {@code index}-th queued change, in queue order. */
+    public long position(int index) {
+        return positions[index];
+    }
+
+    public BlockState state(int index) {
+        return states[index];
+    }
+
+    /**
+     * Applies every queued change, one section at a time; returns the states that were replaced
+     * by the changes that took effect.
+     */
+    public BlockSnapshot apply() {
+        BlockSnapshot previous = new BlockSnapshot(size);
+        BlockState[] replaced = new BlockState[size];
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        for (IntArrayList indices : sections.values()) {
+            for (int i = 0; i < indices.size(); i++) {
+                int index = indices.getInt(i);
+                pos.set(positions[index]);
+                BlockState before = world.getBlockState(pos);
+                if (before == states[index]) {
+                    continue;
+                }
+                if (world.setBlockState(pos, states[index], FLAGS)) {
+                    previous.add(positions[index], before);
+                    replaced[index] = before;
+                }
+            }
+        }
+        updateNeighbors(replaced);
+        return previous.trim();
+    }
+
+    /**
+     * What {@link World#setBlockState} with {@link Block#NOTIFY_ALL} would have done after each
+     * change: neighbor updates from the old block, then shape updates around the new state. Sand
+     * falls, torches and redstone react, fences and panes reconnect and fluids flow in.
+     */
+    private void updateNeighbors(BlockState[] replaced) {
+        for (int i = 0; i < size; i++) {
+            BlockState before = replaced[i];
+            if (before == null) {
+                continue;
+            }
+            // Immutable: the neighbor updater queues positions.
+            BlockPos pos = BlockPos.fromLong(positions[i]);
+            BlockState after = world.getBlockState(pos);
+            world.updateNeighbors(pos, before.getBlock());
+            before.prepare(world, pos, Block.NOTIFY_LISTENERS, UPDATE_DEPTH);
+            after.updateNeighbors(world, pos, Block.NOTIFY_LISTENERS, UPDATE_DEPTH);
+            after.prepare(world, pos, Block.NOTIFY_LISTENERS, UPDATE_DEPTH);
+        }
+    }
+}
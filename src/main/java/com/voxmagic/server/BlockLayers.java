@@ -0,0 +1,81 @@
+package com.voxmagic.server;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+/**
+ * The temporary-block {@link Layer}s of one dimension by packed position, on raw block-state
+ * ids. Holds the ownership rules of {@link TemporaryBlockManager} without touching the world.
+ */
+final class BlockLayers {
+    private final Long2ObjectOpenHashMap<Layer> layers = new Long2ObjectOpenHashMap<>();
+
+    /** What lies under a temporary block at {@code pos}, or {@code current} if there is none. */
+    int originalState(long pos, int current) {
+        Layer layer = layers.get(pos);
+        return layer != null && layer.isIntact(current) ? layer.original : current;
+    }
+
+    /** Adds an owner to the intact layer at {@code pos}; {@code null} if a fresh one is needed. */
+    Layer join(long pos, int current) {
+        Layer layer = layers.get(pos);
+        if (layer == null || !layer.isIntact(current)) {
+            return null;
+        }
+        layer.owners++;
+        return layer;
+    }
+
+    /**
+     * Starts a layer over {@code original} once {@code placed} is written. Owners of a layer a
+     * player changed carry over: they still expire through this one, which restores whatever the
+     * player left.
+     */
+    void start(long pos, int original, int placed) {
+        Layer stale = layers.get(pos);
+        Layer layer = new Layer(original, placed);
+        layer.owners = stale == null ? 1 : stale.owners + 1;
+        layers.put(pos, layer);
+    }
+
+    /** Re-adds an owner read back from the journal; casts replay oldest first, so the newest placed state wins. */
+    void replay(long pos, int original, int placed) {
+        Layer layer = layers.get(pos);
+        if (layer == null) {
+            layers.put(pos, layer = new Layer(original, placed));
+        } else {
+            layer.placed = placed;
+        }
+        layer.owners++;
+    }
+
+    /** Drops one owner; returns the layer if that was the last one, so the caller can write it back. */
+    Layer release(long pos) {
+        Layer layer = layers.get(pos);
+        if (layer == null || --layer.owners > 0) {
+            return null;
+        }
+        layers.remove(pos);
+        return layer;
+    }
+
+    int size() {
+        return layers.size();
+    }
+
+    static final class Layer {
+        final int original;
+        /** What the spells put here. */
+        int placed;
+        int owners = 0;
+
+        Layer(int original, int placed) {
+            this.original = original;
+            this.placed = placed;
+        }
+
+        /** Still holds the spell's block, i.e. no player has changed it since. */
+        boolean isIntact(int current) {
+            return current == placed;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.voxmagic.server;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+
+import java.util.Arrays;
+
+/**
+ * Block states by position as parallel primitive arrays: packed {@link net.minecraft.util.math.BlockPos}
+ * longs and raw block-state ids, 12 bytes per block. What a temporary-block restore keeps
+ * between placement and its deadline.
+ */
+public final class BlockSnapshot {
+    private long[] positions;
+    private int[] stateIds;
+    private int size = 0;
+
+    public BlockSnapshot(int capacity) {
+        positions = new long[Math.max(1, capacity)];
+        stateIds = new int[positions.length];
+    }
+
+    /** Wraps arrays read back from the journal; both must have the same length. */
+    public BlockSnapshot(long[] positions, int[] stateIds) {
+        this.positions = positions;
+        this.stateIds = stateIds;
+        this.size = positions.length;
+    }
+
+    public void add(long pos, BlockState state) {
+        add(pos, Block.getRawIdFromState(state));
+    }
+
+    public void add(long pos, int stateId) {
+        if (size == positions.length) {
+            positions = Arrays.copyOf(positions, size * 2);
+            stateIds = Arrays.copyOf(stateIds, size * 2);
+        }
+        positions[size] = pos;
+        stateIds[size] = stateId;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long position(int index) {
+        return positions[index];
+    }
+
+    public int stateId(int index) {
+        return stateIds[index];
+    }
+
+    public BlockState state(int index) {
+        return Block.getStateFromRawId(stateIds[index]);
+    }
+
+    /** Drops unused capacity before the snapshot is held for a spell's lifetime. */
+    public BlockSnapshot trim() {
+        if (size != positions.length) {
+            positions = Arrays.copyOf(positions, size);
+            stateIds = Arrays.copyOf(stateIds, size);
+        }
+        return this;
+    }
+}
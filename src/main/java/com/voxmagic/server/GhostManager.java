@@ -16,36 +16,38 @@ public final class GhostManager {
     public static void enterGhost(ServerPlayerEntity player, double seconds) {
         if (ACTIVE.containsKey(player.getUuid())) return;
         GameMode prev = player.interactionManager.getGameMode();
-        ACTIVE.put(player.getUuid(), new State(prev, (int) Math.round(seconds * 20)));
+        UUID id = player.getUuid();
+        State state = new State(prev);
+        state.expiry = TickScheduler.schedule((int) Math.round(seconds * 20), server -> expire(server, id));
+        ACTIVE.put(id, state);
         player.changeGameMode(GameMode.SPECTATOR);
     }
 
-    public static void tick(MinecraftServer server) {
-        ACTIVE.entrySet().removeIf(entry -> {
-            UUID id = entry.getKey();
-            State state = entry.getValue();
-            state.ticks--;
-            if (state.ticks <= 0) {
-                ServerPlayerEntity player = server.getPlayerManager().getPlayer(id);
-                if (player != null) {
-                    player.changeGameMode(state.previousMode);
-                }
-                return true;
-            }
-            return false;
-        });
+    /** Players who logged out as ghosts stay in {@link #ACTIVE} until {@link #onJoin}. */
+    private static void expire(MinecraftServer server, UUID id) {
+        ServerPlayerEntity player = server.getPlayerManager().getPlayer(id);
+        if (player == null) {
+            return;
+        }
+        State state = ACTIVE.remove(id);
+        if (state != null) {
+            player.changeGameMode(state.previousMode);
+        }
     }
 
     public static void onJoin(ServerPlayerEntity player) {
         State state = ACTIVE.remove(player.getUuid());
         if (state != null) {
+            if (state.expiry != null) {
+                state.expiry.cancel();
+            }
             player.changeGameMode(state.previousMode);
         }
     }
 
     private static class State {
         final GameMode previousMode;
-        int ticks;
-        State(GameMode previousMode, int ticks) { this.previousMode = previousMode; this.ticks = ticks; }
+        TimingWheel.Timer<MinecraftServer> expiry;
+        State(GameMode previousMode) { this.previousMode = previousMode; }
     }
 }
@@ -3,63 +3,137 @@ package com.voxmagic.server;
 import com.voxmagic.common.config.ModConfig;
 import com.voxmagic.network.NetworkInit;
 import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayNetworkHandler;
 import net.minecraft.server.network.ServerPlayerEntity;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.UUID;
 
+/**
+ * Server-side mana and global cooldown; the state itself lives in a lazily regenerating
+ * {@link ManaStore}. Clients get the pool parameters once and extrapolate regeneration
+ * themselves, so a state packet is only sent for the slots a cast changed this tick. State
+ * leaves memory on disconnect and goes to {@link ManaPersistence}, so relogging does not refill it.
+ */
 public final class ManaManager {
-    private static final Map<UUID, ManaState> STATES = new HashMap<>();
+    private static final int SNAPSHOT_INTERVAL_TICKS = 20 * 60;
+    private static final ManaStore STORE = new ManaStore();
+    /** Connection per store slot while its player is online; the handler follows respawns. */
+    private static ServerPlayNetworkHandler[] online = new ServerPlayNetworkHandler[16];
+    /** Slots whose state changed since the last flush. */
+    private static final BitSet DIRTY = new BitSet();
+    private static int paramsRevision = ModConfig.revision();
 
+    /** Flushes pending state packets; everything else is computed on read. */
     public static void tick(MinecraftServer server) {
-        int tick = (int) (server.getOverworld().getTime() & Integer.MAX_VALUE);
-        for (ServerPlayerEntity p : server.getPlayerManager().getPlayerList()) {
-            ManaState s = STATES.computeIfAbsent(p.getUuid(), k -> new ManaState());
-            s.tick(server);
-            if (tick % 10 == 0) {
-                NetworkInit.sendManaSync(p, s.mana, ModConfig.INSTANCE.mana.max, s.globalCooldownTicks, ModConfig.INSTANCE.mana.regen_per_sec);
+        long now = TickScheduler.now();
+        if (now % SNAPSHOT_INTERVAL_TICKS == 0) {
+            saveOnline(server);
+        }
+        if (paramsRevision != ModConfig.revision()) {
+            paramsRevision = ModConfig.revision();
+            for (int slot = 0; slot < STORE.size(); slot++) {
+                if (online[slot] != null) {
+                    sendParams(online[slot]);
+                    DIRTY.set(slot);
+                }
             }
         }
+        for (int slot = DIRTY.nextSetBit(0); slot >= 0; slot = DIRTY.nextSetBit(slot + 1)) {
+            ServerPlayNetworkHandler handler = online[slot];
+            if (handler == null) continue;
+            NetworkInit.sendManaState(handler.getPlayer(), (int) STORE.manaFixed(slot, now), STORE.cooldownRemaining(slot, now));
+        }
+        DIRTY.clear();
+    }
+
+    public static void onJoin(ServerPlayNetworkHandler handler, MinecraftServer server) {
+        long now = TickScheduler.now();
+        UUID id = handler.getPlayer().getUuid();
+        int slot = STORE.slot(id, now);
+        ManaPersistence.Saved saved = ManaPersistence.get(id);
+        if (saved != null) {
+            // Offline time counts as regeneration, the cooldown keeps running in world time.
+            long clock = server.getOverworld().getTime();
+            long offline = Math.max(0L, clock - saved.savedAt());
+            STORE.restore(slot, saved.manaFixed(), now - offline, now + Math.max(0L, saved.cooldownUntil() - clock));
+        }
+        if (slot >= online.length) {
+            online = Arrays.copyOf(online, Math.max(slot + 1, online.length * 2));
+        }
+        online[slot] = handler;
+        sendParams(handler);
+        DIRTY.set(slot);
     }
 
-    public static boolean tryConsumeForSpell(ServerPlayerEntity player, String spellId) {
-        ManaState s = STATES.computeIfAbsent(player.getUuid(), k -> new ManaState());
-        if (s.globalCooldownTicks > 0) return false;
-        int cost = ModConfig.INSTANCE.spells.getOrDefault(spellId, new ModConfig.SpellCfg()).mana_cost;
-        if (s.mana < cost) return false;
-        s.mana -= cost;
-        s.lastSpent = cost;
+    /** Hands the player's state to the write-behind save and frees the slot. */
+    public static void onDisconnect(ServerPlayNetworkHandler handler, MinecraftServer server) {
+        UUID id = handler.getPlayer().getUuid();
+        int slot = STORE.find(id);
+        if (slot < 0 || online[slot] != handler) {
+            return;
+        }
+        save(id, slot, TickScheduler.now(), server.getOverworld().getTime());
+        STORE.release(id);
+        online[slot] = null;
+        DIRTY.clear(slot);
+    }
+
+    public static boolean tryConsumeForSpell(ServerPlayerEntity player, int spell) {
+        long now = TickScheduler.now();
+        int slot = STORE.slot(player.getUuid(), now);
+        if (STORE.cooldownRemaining(slot, now) > 0) return false;
+        if (!STORE.trySpend(slot, now, SpellRegistry.manaCost(spell))) return false;
+        DIRTY.set(slot);
         return true;
     }
 
-    public static void refundLast(ServerPlayerEntity player, String spellId) {
-        ManaState s = STATES.computeIfAbsent(player.getUuid(), k -> new ManaState());
-        s.mana = Math.min(ModConfig.INSTANCE.mana.max, s.mana + s.lastSpent);
-        s.lastSpent = 0;
+    public static void refundLast(ServerPlayerEntity player) {
+        long now = TickScheduler.now();
+        int slot = STORE.slot(player.getUuid(), now);
+        STORE.refundLast(slot, now);
+        DIRTY.set(slot);
     }
 
     public static void markGlobalCooldown(ServerPlayerEntity player, int ticks) {
-        ManaState s = STATES.computeIfAbsent(player.getUuid(), k -> new ManaState());
-        s.globalCooldownTicks = Math.max(s.globalCooldownTicks, ticks);
+        long now = TickScheduler.now();
+        int slot = STORE.slot(player.getUuid(), now);
+        STORE.startCooldown(slot, now, ticks);
+        DIRTY.set(slot);
     }
 
-    public static class ManaState {
-        public int mana = ModConfig.INSTANCE.mana.max;
-        public int globalCooldownTicks = 0;
-        public int lastSpent = 0;
-        private double carry = 0;
+    /** The store is keyed to this server's tick clock, which restarts with the next world. */
+    public static void clear() {
+        STORE.clear();
+        Arrays.fill(online, null);
+        DIRTY.clear();
+    }
 
-        public void tick(MinecraftServer server) {
-            if (globalCooldownTicks > 0) globalCooldownTicks--;
-            double perTick = ModConfig.INSTANCE.mana.regen_per_sec / 20.0;
-            carry += perTick;
-            int add = (int) carry;
-            if (add > 0) {
-                mana = Math.min(ModConfig.INSTANCE.mana.max, mana + add);
-                carry -= add;
+    /**
+     * Saves everyone online, periodically so a crash loses at most one interval, and on shutdown;
+     * also drops saved players who have regenerated back to defaults since.
+     */
+    public static void saveOnline(MinecraftServer server) {
+        long now = TickScheduler.now();
+        long clock = server.getOverworld().getTime();
+        for (int slot = 0; slot < STORE.size(); slot++) {
+            ServerPlayNetworkHandler handler = online[slot];
+            if (handler != null) {
+                save(handler.getPlayer().getUuid(), slot, now, clock);
             }
         }
+        ManaPersistence.evictRecovered(clock);
     }
-}
 
+    private static void save(UUID id, int slot, long now, long clock) {
+        long manaFixed = STORE.manaFixed(slot, now);
+        int cooldown = STORE.cooldownRemaining(slot, now);
+        boolean fresh = manaFixed >= (long) ModConfig.INSTANCE.mana.max * NetworkInit.MANA_SCALE && cooldown == 0;
+        ManaPersistence.put(id, fresh ? null : new ManaPersistence.Saved(manaFixed, clock, clock + cooldown));
+    }
+
+    private static void sendParams(ServerPlayNetworkHandler handler) {
+        NetworkInit.sendManaParams(handler.getPlayer(), ModConfig.INSTANCE.mana.max, ModConfig.INSTANCE.mana.regen_per_sec);
+    }
+}
@@ -0,0 +1,169 @@
+package com.voxmagic.server;
+
+import com.voxmagic.VoxMagicMode;
+import com.voxmagic.common.config.ModConfig;
+import com.voxmagic.network.NetworkInit;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.WorldSavePath;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Mana and cooldown of players who are offline, or as of the last periodic snapshot, kept in
+ * {@code data/voxmagic_mana.bin} in the world save. The server thread only updates an
+ * in-memory table; a writer thread rewrites the file from it every few seconds when something
+ * changed, so a mass disconnect costs one map put per player and no I/O on the tick. Entries
+ * that have regenerated back to defaults are evicted, so the table only holds players whose
+ * state still differs from a fresh join.
+ */
+public final class ManaPersistence {
+    private static final String FILE_NAME = "voxmagic_mana.bin";
+    private static final int MAGIC = 0x564d4e31; // "VMN1"
+    private static final long FLUSH_INTERVAL_SEC = 5L;
+
+    /** Times are world game time, which is saved with the level, unlike {@link TickScheduler#now()}. */
+    public record Saved(long manaFixed, long savedAt, long cooldownUntil) {}
+
+    private static final Map<UUID, Saved> TABLE = new ConcurrentHashMap<>();
+    private static final AtomicBoolean DIRTY = new AtomicBoolean();
+    private static ScheduledExecutorService writer;
+    private static Path file;
+
+    private ManaPersistence() {}
+
+    public static void open(MinecraftServer server) {
+        close();
+        TABLE.clear();
+        DIRTY.set(false);
+        file = server.getSavePath(WorldSavePath.ROOT).resolve("data").resolve(FILE_NAME);
+        if (Files.exists(file)) {
+            try {
+                read(file);
+            } catch (IOException e) {
+                VoxMagicMode.LOGGER.warn("Failed to read mana save {}", file, e);
+            }
+            evictRecovered(server.getOverworld().getTime());
+        }
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "VoxManaSave");
+            t.setDaemon(true);
+            return t;
+        });
+        Path target = file;
+        executor.scheduleWithFixedDelay(() -> flush(target), FLUSH_INTERVAL_SEC, FLUSH_INTERVAL_SEC, TimeUnit.SECONDS);
+        writer = executor;
+    }
+
+    /** Last saved state of {@code player}, or {@code null} if it had nothing worth keeping. */
+    public static Saved get(UUID player) {
+        return TABLE.get(player);
+    }
+
+    /** Records a player's state for the next flush; {@code null} forgets it (full mana, no cooldown). Server thread. */
+    public static void put(UUID player, Saved saved) {
+        Saved old = saved == null ? TABLE.remove(player) : TABLE.put(player, saved);
+        if (saved != null || old != null) {
+            DIRTY.set(true);
+        }
+    }
+
+    /**
+     * Forgets players whose saved mana has regenerated to full and whose cooldown has run out by
+     * world time {@code clock}; a fresh slot gives them the same state. Server thread.
+     */
+    public static void evictRecovered(long clock) {
+        ModConfig.ManaCfg cfg = ModConfig.INSTANCE.mana;
+        long max = (long) cfg.max * NetworkInit.MANA_SCALE;
+        if (TABLE.values().removeIf(saved -> saved.cooldownUntil() <= clock
+                && NetworkInit.regenMana(saved.manaFixed(), clock - saved.savedAt(), cfg.max, cfg.regen_per_sec) >= max)) {
+            DIRTY.set(true);
+        }
+    }
+
+    /** Number of players with saved state. */
+    public static int size() {
+        return TABLE.size();
+    }
+
+    /** Stops the writer after a final flush. */
+    public static void close() {
+        ScheduledExecutorService executor = writer;
+        if (executor == null) {
+            return;
+        }
+        writer = null;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                VoxMagicMode.LOGGER.warn("Mana save writer did not finish in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush(file);
+    }
+
+    private static void read(Path path) throws IOException {
+        try (InputStream raw = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(raw))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a mana save");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                UUID player = new UUID(in.readLong(), in.readLong());
+                TABLE.put(player, new Saved(in.readLong(), in.readLong(), in.readLong()));
+            }
+        }
+    }
+
+    private static void flush(Path path) {
+        if (path == null || !DIRTY.getAndSet(false)) {
+            return;
+        }
+        List<Map.Entry<UUID, Saved>> entries = new ArrayList<>(TABLE.entrySet());
+        Path tmp = path.resolveSibling(FILE_NAME + ".tmp");
+        try {
+            Files.createDirectories(path.getParent());
+            try (OutputStream raw = Files.newOutputStream(tmp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(raw))) {
+                out.writeInt(MAGIC);
+                out.writeInt(entries.size());
+                for (Map.Entry<UUID, Saved> entry : entries) {
+                    out.writeLong(entry.getKey().getMostSignificantBits());
+                    out.writeLong(entry.getKey().getLeastSignificantBits());
+                    out.writeLong(entry.getValue().manaFixed());
+                    out.writeLong(entry.getValue().savedAt());
+                    out.writeLong(entry.getValue().cooldownUntil());
+                }
+            }
+            try {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            DIRTY.set(true);
+            VoxMagicMode.LOGGER.warn("Failed to write mana save {}", path, e);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.voxmagic.server;
+
+import com.voxmagic.common.config.ModConfig;
+import com.voxmagic.network.NetworkInit;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Mana and cooldown per player in parallel arrays indexed by a slot handed out per UUID while
+ * the player is online. Mana is fixed point ({@link NetworkInit#MANA_SCALE} units per point)
+ * and never ticked: each slot keeps the value at its last write and the tick of that write, and
+ * regeneration since then is added when the value is read. All times are
+ * {@link TickScheduler#now()} ticks.
+ */
+public final class ManaStore {
+    private final Object2IntOpenHashMap<UUID> slots = new Object2IntOpenHashMap<>();
+    private final IntArrayList free = new IntArrayList();
+    private long[] mana = new long[16];
+    private long[] updatedTick = new long[16];
+    private long[] cooldownUntilTick = new long[16];
+    private int[] lastSpent = new int[16];
+    private int size = 0;
+
+    public ManaStore() {
+        slots.defaultReturnValue(-1);
+    }
+
+    /** The player's slot, allocated at full mana on first use. */
+    public int slot(UUID player, long now) {
+        int slot = slots.getInt(player);
+        if (slot >= 0) {
+            return slot;
+        }
+        if (!free.isEmpty()) {
+            slot = free.popInt();
+            reset(slot, now);
+            slots.put(player, slot);
+            return slot;
+        }
+        if (size == mana.length) {
+            int capacity = size * 2;
+            mana = Arrays.copyOf(mana, capacity);
+            updatedTick = Arrays.copyOf(updatedTick, capacity);
+            cooldownUntilTick = Arrays.copyOf(cooldownUntilTick, capacity);
+            lastSpent = Arrays.copyOf(lastSpent, capacity);
+        }
+        slot = size++;
+        reset(slot, now);
+        slots.put(player, slot);
+        return slot;
+    }
+
+    /** Frees the player's slot for reuse; returns it, or -1 if the player had none. */
+    public int release(UUID player) {
+        int slot = slots.removeInt(player);
+        if (slot >= 0) {
+            free.push(slot);
+        }
+        return slot;
+    }
+
+    /** Loads saved state into a slot: mana as of {@code updatedTick}, and a cooldown end. */
+    public void restore(int slot, long manaFixed, long updatedTick, long cooldownUntilTick) {
+        this.mana[slot] = manaFixed;
+        this.updatedTick[slot] = updatedTick;
+        this.cooldownUntilTick[slot] = cooldownUntilTick;
+        this.lastSpent[slot] = 0;
+    }
+
+    /** Slot of a player the store has seen this session, or -1. */
+    public int find(UUID player) {
+        return slots.getInt(player);
+    }
+
+    /** Upper bound of slots handed out so far; released slots in that range are reused. */
+    public int size() {
+        return size;
+    }
+
+    /** Whole mana points at {@code now}. */
+    public int mana(int slot, long now) {
+        return (int) (manaFixed(slot, now) / NetworkInit.MANA_SCALE);
+    }
+
+    public int cooldownRemaining(int slot, long now) {
+        return (int) Math.max(0L, cooldownUntilTick[slot] - now);
+    }
+
+    public boolean trySpend(int slot, long now, int cost) {
+        long value = manaFixed(slot, now);
+        if (value < (long) cost * NetworkInit.MANA_SCALE) {
+            return false;
+        }
+        set(slot, now, value - (long) cost * NetworkInit.MANA_SCALE);
+        lastSpent[slot] = cost;
+        return true;
+    }
+
+    /** Gives back the last {@link #trySpend} of this slot. */
+    public void refundLast(int slot, long now) {
+        long max = (long) ModConfig.INSTANCE.mana.max * NetworkInit.MANA_SCALE;
+        set(slot, now, Math.min(max, manaFixed(slot, now) + (long) lastSpent[slot] * NetworkInit.MANA_SCALE));
+        lastSpent[slot] = 0;
+    }
+
+    public void startCooldown(int slot, long now, int ticks) {
+        cooldownUntilTick[slot] = Math.max(cooldownUntilTick[slot], now + ticks);
+    }
+
+    public void clear() {
+        slots.clear();
+        free.clear();
+        size = 0;
+    }
+
+    /** Mana at {@code now} in {@link NetworkInit#MANA_SCALE} units per point. */
+    public long manaFixed(int slot, long now) {
+        ModConfig.ManaCfg cfg = ModConfig.INSTANCE.mana;
+        return NetworkInit.regenMana(mana[slot], now - updatedTick[slot], cfg.max, cfg.regen_per_sec);
+    }
+
+    private void reset(int slot, long now) {
+        mana[slot] = (long) ModConfig.INSTANCE.mana.max * NetworkInit.MANA_SCALE;
+        updatedTick[slot] = now;
+        cooldownUntilTick[slot] = 0L;
+        lastSpent[slot] = 0;
+    }
+
+    private void set(int slot, long now, long value) {
+        mana[slot] = value;
+        updatedTick[slot] = now;
+    }
+}
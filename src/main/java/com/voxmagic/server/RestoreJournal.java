@@ -0,0 +1,323 @@
+package com.voxmagic.server;
+
+import com.voxmagic.VoxMagicMode;
+import net.minecraft.block.Block;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.WorldSavePath;
+import net.minecraft.world.World;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only record of temporary-block restores that have not run yet, kept in the world save
+ * so a crash or restart does not leave spell blocks behind. Records are binary: an ADD holds
+ * the dimension, the deadline in world game time, packed block position longs, the raw
+ * block-state ids to restore and the ids the spell placed; a DONE holds just the id. All file I/O happens on one writer thread, which
+ * also compacts the file once finished records outweigh the live ones.
+ */
+public final class RestoreJournal {
+    private static final String FILE_NAME = "voxmagic_restores.bin";
+    private static final int MAGIC = 0x56585232; // "VXR2"
+    private static final byte TAG_ADD = 1;
+    private static final byte TAG_DONE = 2;
+    private static final int DONE_BYTES = 1 + Long.BYTES;
+    private static final long COMPACT_MIN_BYTES = 64 * 1024;
+
+    private static ExecutorService writer;
+    private static long nextId = 1L;
+    /** Block-state registry size the open journal was written against. */
+    private static int stateCount;
+
+    // Writer-thread state.
+    private static Path file;
+    private static FileChannel channel;
+    private static final Map<Long, byte[]> LIVE = new LinkedHashMap<>();
+    private static long liveBytes = 0L;
+    private static long deadBytes = 0L;
+
+    private RestoreJournal() {}
+
+    /** A restore read back from the journal; {@code placed} is parallel to {@code blocks}. */
+    public record Entry(long id, RegistryKey<World> dimension, long deadline, int ticks, BlockSnapshot blocks, int[] placed) {}
+
+    /** World game time: saved with the level and untouched by {@code /time set}. */
+    public static long clock(MinecraftServer server) {
+        return server.getOverworld().getTime();
+    }
+
+    /**
+     * Reads the journal of the world being started, rewrites it with only the unfinished
+     * restores and starts the writer. Returns those restores for the caller to re-schedule.
+     */
+    public static List<Entry> open(MinecraftServer server) {
+        return open(server.getSavePath(WorldSavePath.ROOT).resolve("data").resolve(FILE_NAME), Block.STATE_IDS.size());
+    }
+
+    /** {@link #open(MinecraftServer)} on {@code path}, for a registry of {@code states} block states. */
+    static List<Entry> open(Path path, int states) {
+        close();
+        stateCount = states;
+        List<Entry> pending = new ArrayList<>();
+        Map<Long, byte[]> live = new LinkedHashMap<>();
+        long maxId = 0L;
+        if (Files.exists(path)) {
+            try {
+                maxId = read(path, pending, live);
+            } catch (IOException e) {
+                VoxMagicMode.LOGGER.warn("Failed to read restore journal {}", path, e);
+            }
+        }
+        nextId = maxId + 1;
+        if (!pending.isEmpty()) {
+            VoxMagicMode.LOGGER.info("Replaying {} unfinished block restores", pending.size());
+        }
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "VoxRestoreJournal");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.execute(() -> {
+            file = path;
+            LIVE.clear();
+            LIVE.putAll(live);
+            liveBytes = 0L;
+            for (byte[] record : live.values()) {
+                liveBytes += record.length;
+            }
+            compact();
+        });
+        writer = executor;
+        return pending;
+    }
+
+    /**
+     * Journals a restore of {@code blocks} due at {@code deadline}, over the states in
+     * {@code placed}; returns its id. Server thread.
+     */
+    public static long append(RegistryKey<World> dimension, long deadline, int ticks, BlockSnapshot blocks, int[] placed) {
+        long id = nextId++;
+        ExecutorService executor = writer;
+        if (executor == null) {
+            return id;
+        }
+        String dimensionId = dimension.getValue().toString();
+        executor.execute(() -> {
+            byte[] record = encodeAdd(id, dimensionId, deadline, ticks, blocks, placed);
+            LIVE.put(id, record);
+            liveBytes += record.length;
+            write(ByteBuffer.wrap(record));
+        });
+        return id;
+    }
+
+    /** Marks a journaled restore as done. Server thread. */
+    public static void complete(long id) {
+        ExecutorService executor = writer;
+        if (executor == null) {
+            return;
+        }
+        executor.execute(() -> {
+            byte[] record = LIVE.remove(id);
+            if (record == null) {
+                return;
+            }
+            liveBytes -= record.length;
+            deadBytes += record.length + DONE_BYTES;
+            write(ByteBuffer.allocate(DONE_BYTES).put(TAG_DONE).putLong(id).flip());
+            if (deadBytes >= COMPACT_MIN_BYTES && deadBytes > liveBytes) {
+                compact();
+            }
+        });
+    }
+
+    /** Flushes outstanding records and stops the writer; unfinished restores stay journaled. */
+    public static void close() {
+        ExecutorService executor = writer;
+        if (executor == null) {
+            return;
+        }
+        writer = null;
+        executor.execute(RestoreJournal::closeChannel);
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                VoxMagicMode.LOGGER.warn("Restore journal writer did not finish in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long read(Path path, List<Entry> pending, Map<Long, byte[]> live) throws IOException {
+        Map<Long, Entry> entries = new LinkedHashMap<>();
+        long maxId = 0L;
+        try (InputStream raw = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(raw))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a restore journal");
+            }
+            int written = in.readInt();
+            if (written != stateCount) {
+                // Raw state ids shift when mods or the game version change; replaying them would
+                // put the wrong blocks in the world.
+                VoxMagicMode.LOGGER.warn("Discarding restore journal: block state ids changed ({} -> {})", written, stateCount);
+                return 0L;
+            }
+            while (true) {
+                int tag = in.read();
+                if (tag < 0) {
+                    break;
+                }
+                try {
+                    if (tag == TAG_ADD) {
+                        long id = in.readLong();
+                        long deadline = in.readLong();
+                        int ticks = in.readInt();
+                        String dimension = in.readUTF();
+                        int n = in.readInt();
+                        long[] positions = new long[n];
+                        int[] stateIds = new int[n];
+                        int[] placed = new int[n];
+                        for (int i = 0; i < n; i++) {
+                            positions[i] = in.readLong();
+                        }
+                        for (int i = 0; i < n; i++) {
+                            stateIds[i] = in.readInt();
+                        }
+                        for (int i = 0; i < n; i++) {
+                            placed[i] = in.readInt();
+                        }
+                        RegistryKey<World> key = RegistryKey.of(RegistryKeys.WORLD, Identifier.of(dimension));
+                        entries.put(id, new Entry(id, key, deadline, ticks, new BlockSnapshot(positions, stateIds), placed));
+                        maxId = Math.max(maxId, id);
+                    } else if (tag == TAG_DONE) {
+                        long id = in.readLong();
+                        entries.remove(id);
+                        maxId = Math.max(maxId, id);
+                    } else {
+                        VoxMagicMode.LOGGER.warn("Restore journal has an unknown record {}; ignoring the rest", tag);
+                        break;
+                    }
+                } catch (EOFException e) {
+                    // Torn final record from a crash mid-write; everything before it is intact.
+                    break;
+                }
+            }
+        }
+        for (Entry entry : entries.values()) {
+            pending.add(entry);
+            live.put(entry.id(), encodeAdd(entry.id(), entry.dimension().getValue().toString(),
+                    entry.deadline(), entry.ticks(), entry.blocks(), entry.placed()));
+        }
+        return maxId;
+    }
+
+    private static byte[] encodeAdd(long id, String dimension, long deadline, int ticks, BlockSnapshot blocks, int[] placed) {
+        int n = blocks.size();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + dimension.length() + n * 16);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(TAG_ADD);
+            out.writeLong(id);
+            out.writeLong(deadline);
+            out.writeInt(ticks);
+            out.writeUTF(dimension);
+            out.writeInt(n);
+            for (int i = 0; i < n; i++) {
+                out.writeLong(blocks.position(i));
+            }
+            for (int i = 0; i < n; i++) {
+                out.writeInt(blocks.stateId(i));
+            }
+            for (int i = 0; i < n; i++) {
+                out.writeInt(placed[i]);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void write(ByteBuffer buffer) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            VoxMagicMode.LOGGER.warn("Failed to write restore journal", e);
+        }
+    }
+
+    /** Rewrites the file with only the live records and reopens it for appending. */
+    private static void compact() {
+        closeChannel();
+        Path tmp = file.resolveSibling(FILE_NAME + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer header = ByteBuffer.allocate(8).putInt(MAGIC).putInt(stateCount).flip();
+                while (header.hasRemaining()) {
+                    out.write(header);
+                }
+                for (byte[] record : LIVE.values()) {
+                    ByteBuffer buffer = ByteBuffer.wrap(record);
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                }
+                out.force(false);
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            deadBytes = 0L;
+        } catch (IOException e) {
+            VoxMagicMode.LOGGER.warn("Failed to compact restore journal {}", file, e);
+        }
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            VoxMagicMode.LOGGER.warn("Failed to open restore journal {}", file, e);
+        }
+    }
+
+    private static void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            VoxMagicMode.LOGGER.warn("Failed to close restore journal", e);
+        }
+        channel = null;
+    }
+}
@@ -0,0 +1,44 @@
+package com.voxmagic.server;
+
+import com.voxmagic.common.config.ModConfig;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * A castable spell. {@link #resolve} turns the spell's config entry into typed settings once per
+ * config load; {@link #cast} then only sees those settings. Register with
+ * {@link SpellRegistry#register}, which is also open to other mods.
+ *
+ * @param <S> this spell's resolved settings; should be immutable
+ */
+public interface Spell<S> {
+    /** Config and command name, e.g. {@code "web"}. */
+    String name();
+
+    /** Called on registration and after every config reload; {@code cfg} is never null. */
+    S resolve(ModConfig.SpellCfg cfg);
+
+    /** Runs the spell; {@code false} if nothing happened, in which case the mana is refunded. */
+    boolean cast(ServerPlayerEntity player, S settings);
+
+    static <S> Spell<S> of(String name, Function<ModConfig.SpellCfg, S> resolver, BiPredicate<ServerPlayerEntity, S> action) {
+        return new Spell<>() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public S resolve(ModConfig.SpellCfg cfg) {
+                return resolver.apply(cfg);
+            }
+
+            @Override
+            public boolean cast(ServerPlayerEntity player, S settings) {
+                return action.test(player, settings);
+            }
+        };
+    }
+}
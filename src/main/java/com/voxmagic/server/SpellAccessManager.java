@@ -4,7 +4,6 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
 import com.voxmagic.VoxMagicMode;
-import com.voxmagic.common.config.ModConfig;
 import net.fabricmc.loader.api.FabricLoader;
 
 import net.minecraft.server.network.ServerPlayerEntity;
@@ -16,7 +15,6 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
@@ -130,10 +128,7 @@ public final class SpellAccessManager {
     }
 
     public static Collection<String> getKnownSpells() {
-        if (ModConfig.INSTANCE == null || ModConfig.INSTANCE.spells == null) {
-            return Collections.emptyList();
-        }
-        return ModConfig.INSTANCE.spells.keySet();
+        return SpellRegistry.names();
     }
 
     public static Text describeStatus(ServerPlayerEntity player, String spellId) {
@@ -2,8 +2,6 @@ package com.voxmagic.server;
 
 import com.voxmagic.common.config.ModConfig;
 import com.voxmagic.content.ModItems;
-import com.voxmagic.network.NetworkInit;
-import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityType;
@@ -28,11 +26,8 @@ import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.RaycastContext;
 import net.minecraft.world.World;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
-import java.util.function.Function;
 
 public final class SpellExecutor {
     private static final Random RNG = new Random();
@@ -41,26 +36,26 @@ public final class SpellExecutor {
         return player.getMainHandStack().isOf(ModItems.MAGIC_BOOK) || player.getOffHandStack().isOf(ModItems.MAGIC_BOOK);
     }
 
-    public static boolean execute(ServerPlayerEntity player, NetworkInit.SpellCastPayload payload) {
-        String spell = payload.spellId;
-        boolean success;
-        switch (spell) {
-            case "lightning" -> success = castLightning(player);
-            case "web" -> success = castWeb(player);
-            case "heal" -> success = castHeal(player);
-            case "ghost" -> success = castGhost(player);
-            case "wall" -> success = castWall(player);
-            case "fireball" -> success = castFireball(player);
-            case "slime" -> success = castSlimePlatform(player);
-            case "dome" -> success = castGlassDome(player);
-            case "shockwave" -> success = castShockwave(player);
-            case "levitate" -> success = castLevitate(player);
-            case "meteor" -> success = castMeteor(player);
-            case "push" -> success = castPush(player);
-            case "teleport" -> success = castTeleport(player);
-            case "pull" -> success = castPull(player);
-            default -> success = false;
-        }
+    /** Registers the built-in spells; ids follow this order. */
+    public static void registerBuiltins() {
+        SpellRegistry.register(Spell.of("lightning", cfg -> new Placement(reach(), 0, 0), SpellExecutor::castLightning));
+        SpellRegistry.register(Spell.of("web", cfg -> new Placement(reach(), Math.max(2, or(cfg.cross_radius, 2)), or(cfg.lifetime_sec, 3.5)), SpellExecutor::castWeb));
+        SpellRegistry.register(Spell.of("heal", cfg -> new Heal(or(cfg.regen_sec, 3) * 20, or(cfg.saturation_sec, 3) * 20), SpellExecutor::castHeal));
+        SpellRegistry.register(Spell.of("ghost", cfg -> new Power(or(cfg.duration_sec, 1.5)), SpellExecutor::castGhost));
+        SpellRegistry.register(Spell.of("wall", cfg -> new Placement(reach(), Math.max(1, or(cfg.size, 6)), or(cfg.lifetime_sec, 4.0)), SpellExecutor::castWall));
+        SpellRegistry.register(Spell.of("fireball", cfg -> new Fireball((float) or(cfg.power, 2.5), cfg.blockDamage != null && cfg.blockDamage), SpellExecutor::castFireball));
+        SpellRegistry.register(Spell.of("slime", cfg -> new Placement(0, 0, or(cfg.lifetime_sec, 2.0)), SpellExecutor::castSlimePlatform));
+        SpellRegistry.register(Spell.of("dome", cfg -> new Placement(0, Math.max(2, or(cfg.size, 3)), or(cfg.lifetime_sec, 2.0)), SpellExecutor::castGlassDome));
+        SpellRegistry.register(Spell.of("shockwave", cfg -> new Power(or(cfg.power, 6.0)), SpellExecutor::castShockwave));
+        SpellRegistry.register(Spell.of("levitate", cfg -> new Power(or(cfg.power, 15.0)), SpellExecutor::castLevitate));
+        SpellRegistry.register(Spell.of("meteor", cfg -> new Power(or(cfg.power, 20.0)), SpellExecutor::castMeteor));
+        SpellRegistry.register(Spell.of("push", cfg -> new Power(or(cfg.power, 1.5)), SpellExecutor::castPush));
+        SpellRegistry.register(Spell.of("teleport", cfg -> new Power(or(cfg.power, 10.0)), SpellExecutor::castTeleport));
+        SpellRegistry.register(Spell.of("pull", cfg -> new Power(or(cfg.power, 5.0)), SpellExecutor::castPull));
+    }
+
+    public static boolean execute(ServerPlayerEntity player, int spell) {
+        boolean success = SpellRegistry.cast(player, spell);
         if (success) {
             spawnCastParticles(player);
         }
@@ -74,9 +69,8 @@ public final class SpellExecutor {
         return player.getWorld().raycast(new RaycastContext(from, to, RaycastContext.ShapeType.OUTLINE, RaycastContext.FluidHandling.NONE, player));
     }
 
-    private static boolean castLightning(ServerPlayerEntity p) {
-        double max = ModConfig.INSTANCE.raycast_max_distance;
-        HitResult hr = raycast(p, max);
+    private static boolean castLightning(ServerPlayerEntity p, Placement s) {
+        HitResult hr = raycast(p, s.reach());
         if (hr.getType() == HitResult.Type.MISS) return false;
         Vec3d pos = hr.getPos();
         ServerWorld sw = (ServerWorld) p.getWorld();
@@ -95,53 +89,41 @@ public final class SpellExecutor {
         return true;
     }
 
-    private static boolean castWeb(ServerPlayerEntity p) {
-        int baseRadius = Math.max(2, intValue("web", cfg -> cfg.cross_radius, 2));
-        double max = ModConfig.INSTANCE.raycast_max_distance;
-        HitResult hr = raycast(p, max);
+    private static boolean castWeb(ServerPlayerEntity p, Placement s) {
+        int baseRadius = s.size();
+        HitResult hr = raycast(p, s.reach());
         if (hr.getType() == HitResult.Type.MISS) return false;
         BlockPos center = BlockPos.ofFloored(hr.getPos());
-        World world = p.getWorld();
-        Map<BlockPos, BlockState> restore = new HashMap<>();
-        int placed = 0;
+        ServerWorld world = (ServerWorld) p.getWorld();
+        BlockBatch batch = new BlockBatch(world);
+        BlockPos.Mutable pos = new BlockPos.Mutable();
         for (int dy = 0; dy <= 1; dy++) {
             for (int dx = -baseRadius; dx <= baseRadius; dx++) {
                 for (int dz = -baseRadius; dz <= baseRadius; dz++) {
                     if (Math.abs(dx) + Math.abs(dz) > baseRadius) continue;
-                    BlockPos pos = center.add(dx, dy, dz);
-                    BlockState previous = world.getBlockState(pos);
-                    if (!previous.isAir()) continue;
-                    if (!world.setBlockState(pos, Blocks.COBWEB.getDefaultState(), 3)) continue;
-                    restore.put(pos.toImmutable(), previous);
-                    placed++;
+                    pos.set(center, dx, dy, dz);
+                    if (!TemporaryBlockManager.originalState(world, pos).isAir()) continue;
+                    batch.set(pos, Blocks.COBWEB.getDefaultState());
                 }
             }
         }
-        if (placed > 0) {
-            TemporaryBlockManager.scheduleRestore(world, restore, doubleValue("web", cfg -> cfg.lifetime_sec, 3.5));
-            return true;
-        }
-        return false;
+        return TemporaryBlockManager.place(world, batch, s.lifetimeSec());
     }
 
-    private static boolean castHeal(ServerPlayerEntity p) {
-        int regenSec = intValue("heal", cfg -> cfg.regen_sec, 3);
-        int satSec = intValue("heal", cfg -> cfg.saturation_sec, 3);
-        p.addStatusEffect(new StatusEffectInstance(StatusEffects.REGENERATION, regenSec * 20, 0, false, true, true));
-        p.addStatusEffect(new StatusEffectInstance(StatusEffects.SATURATION, satSec * 20, 0, false, true, true));
+    private static boolean castHeal(ServerPlayerEntity p, Heal s) {
+        p.addStatusEffect(new StatusEffectInstance(StatusEffects.REGENERATION, s.regenTicks(), 0, false, true, true));
+        p.addStatusEffect(new StatusEffectInstance(StatusEffects.SATURATION, s.saturationTicks(), 0, false, true, true));
         return true;
     }
 
-    private static boolean castGhost(ServerPlayerEntity p) {
-        double duration = doubleValue("ghost", cfg -> cfg.duration_sec, 1.5);
-        GhostManager.enterGhost(p, duration);
+    private static boolean castGhost(ServerPlayerEntity p, Power s) {
+        GhostManager.enterGhost(p, s.power());
         return true;
     }
 
-    private static boolean castWall(ServerPlayerEntity p) {
-        int size = Math.max(1, intValue("wall", cfg -> cfg.size, 6));
-        double max = ModConfig.INSTANCE.raycast_max_distance;
-        HitResult hr = raycast(p, max);
+    private static boolean castWall(ServerPlayerEntity p, Placement s) {
+        int size = s.size();
+        HitResult hr = raycast(p, s.reach());
         if (hr.getType() == HitResult.Type.MISS) return false;
         BlockPos center = BlockPos.ofFloored(hr.getPos());
         float yaw = p.getYaw();
@@ -149,82 +131,69 @@ public final class SpellExecutor {
         int rx = (int) Math.round(Math.cos(rad));
         int rz = (int) Math.round(Math.sin(rad));
         int half = size / 2;
-        Map<BlockPos, BlockState> restore = new HashMap<>();
-        int placed = 0;
+        ServerWorld world = (ServerWorld) p.getWorld();
+        BlockBatch batch = new BlockBatch(world);
+        BlockPos.Mutable pos = new BlockPos.Mutable();
         for (int u = -half; u < -half + size + 4; u++) {
             for (int v = -half - 1; v < -half + size + 1; v++) {
-                BlockPos pos = center.add(rx * v, u, rz * v);
-                BlockState prev = p.getWorld().getBlockState(pos);
-                if (!prev.isAir()) continue;
-                if (!p.getWorld().setBlockState(pos, Blocks.STONE.getDefaultState(), 3)) continue;
-                restore.put(pos.toImmutable(), prev);
-                placed++;
+                pos.set(center, rx * v, u, rz * v);
+                if (!TemporaryBlockManager.originalState(world, pos).isAir()) continue;
+                batch.set(pos, Blocks.STONE.getDefaultState());
             }
         }
-        if (placed > 0) {
-            TemporaryBlockManager.scheduleRestore(p.getWorld(), restore, doubleValue("wall", cfg -> cfg.lifetime_sec, 4.0));
-            return true;
-        }
-        return false;
+        return TemporaryBlockManager.place(world, batch, s.lifetimeSec());
     }
 
-    private static boolean castFireball(ServerPlayerEntity p) {
+    private static boolean castFireball(ServerPlayerEntity p, Fireball s) {
         Vec3d eye = p.getEyePos();
         Vec3d dir = p.getRotationVec(1f).normalize();
         double speed = 1.6;
-        double powerVal = doubleValue("fireball", cfg -> cfg.power, 2.5);
-        SmallFireballEntity fb = new ExplodingFireball(p.getWorld(), p, dir.x * speed, dir.y * speed, dir.z * speed, (float) powerVal);
+        SmallFireballEntity fb = new ExplodingFireball(p.getWorld(), p, dir.x * speed, dir.y * speed, dir.z * speed, s.power(), s.blockDamage());
         fb.setPos(eye.x, eye.y - 0.1, eye.z);
         fb.setVelocity(dir.x * speed, dir.y * speed, dir.z * speed);
         p.getWorld().spawnEntity(fb);
         return true;
     }
 
-    private static boolean castSlimePlatform(ServerPlayerEntity p) {
+    private static boolean castSlimePlatform(ServerPlayerEntity p, Placement s) {
         ServerWorld world = (ServerWorld) p.getWorld();
         BlockPos base = BlockPos.ofFloored(p.getPos()).down();
-        Map<BlockPos, BlockState> restore = new HashMap<>();
+        BlockBatch batch = new BlockBatch(world);
+        BlockPos.Mutable pos = new BlockPos.Mutable();
         for (int dx = -1; dx <= 1; dx++) {
             for (int dz = -1; dz <= 1; dz++) {
-                BlockPos pos = base.add(dx, 0, dz);
-                BlockState previous = world.getBlockState(pos);
-                if (previous.isOf(Blocks.BEDROCK)) continue;
-                if (!world.setBlockState(pos, Blocks.SLIME_BLOCK.getDefaultState(), 3)) continue;
-                restore.put(pos.toImmutable(), previous);
+                pos.set(base, dx, 0, dz);
+                if (TemporaryBlockManager.originalState(world, pos).isOf(Blocks.BEDROCK)) continue;
+                batch.set(pos, Blocks.SLIME_BLOCK.getDefaultState());
             }
         }
-        if (restore.isEmpty()) return false;
-        TemporaryBlockManager.scheduleRestore(world, restore, doubleValue("slime", cfg -> cfg.lifetime_sec, 2.0));
-        return true;
+        return TemporaryBlockManager.place(world, batch, s.lifetimeSec());
     }
 
-    private static boolean castGlassDome(ServerPlayerEntity p) {
+    private static boolean castGlassDome(ServerPlayerEntity p, Placement s) {
         ServerWorld world = (ServerWorld) p.getWorld();
         BlockPos origin = BlockPos.ofFloored(p.getPos());
-        int radius = Math.max(2, intValue("dome", cfg -> cfg.size, 3));
+        int radius = s.size();
         double radiusSq = radius * radius;
         double innerSq = (radius - 1.0) * (radius - 1.0);
-        Map<BlockPos, BlockState> restore = new HashMap<>();
+        BlockBatch batch = new BlockBatch(world);
+        BlockPos.Mutable pos = new BlockPos.Mutable();
         for (int dx = -radius; dx <= radius; dx++) {
             for (int dy = 0; dy <= radius; dy++) {
                 for (int dz = -radius; dz <= radius; dz++) {
                     double distSq = dx * dx + dy * dy + dz * dz;
                     if (distSq > radiusSq || distSq < innerSq) continue;
-                    BlockPos pos = origin.add(dx, dy, dz);
-                    BlockState prev = world.getBlockState(pos);
-                    if (prev.isOf(Blocks.BEDROCK)) continue;
-                    if (!world.setBlockState(pos, Blocks.GLASS.getDefaultState(), 3)) continue;
-                    restore.put(pos.toImmutable(), prev);
+                    pos.set(origin, dx, dy, dz);
+                    if (TemporaryBlockManager.originalState(world, pos).isOf(Blocks.BEDROCK)) continue;
+                    batch.set(pos, Blocks.GLASS.getDefaultState());
                 }
             }
         }
-        if (restore.isEmpty()) return false;
-        TemporaryBlockManager.scheduleRestore(world, restore, doubleValue("dome", cfg -> cfg.lifetime_sec, 2.0));
-        return true;
+        return TemporaryBlockManager.place(world, batch, s.lifetimeSec());
     }
 
-    private static boolean castShockwave(ServerPlayerEntity p) {
-        double radius = doubleValue("shockwave", cfg -> cfg.power, 6.0);
+    private static boolean castShockwave(ServerPlayerEntity p, Power s) {
+        double radius = s.power();
         ServerWorld world = (ServerWorld) p.getWorld();
         List<Entity> targets = world.getOtherEntities(p, p.getBoundingBox().expand(radius), entity -> entity.isAlive());
         if (targets.isEmpty()) return false;
@@ -239,8 +208,8 @@ public final class SpellExecutor {
         return true;
     }
 
-    private static boolean castLevitate(ServerPlayerEntity p) {
-        double range = doubleValue("levitate", cfg -> cfg.power, 15.0);
+    private static boolean castLevitate(ServerPlayerEntity p, Power s) {
+        double range = s.power();
         EntityHitResult hit = raycastEntity(p, range);
         if (hit == null) return false;
         Entity target = hit.getEntity();
@@ -249,8 +218,8 @@ public final class SpellExecutor {
         return true;
     }
 
-    private static boolean castMeteor(ServerPlayerEntity p) {
-        double max = doubleValue("meteor", cfg -> cfg.power, 20.0);
+    private static boolean castMeteor(ServerPlayerEntity p, Power s) {
+        double max = s.power();
         HitResult hr = raycast(p, max);
         Vec3d target = hr.getType() == HitResult.Type.MISS ? p.getEyePos().add(p.getRotationVec(1f).multiply(max)) : hr.getPos();
         Vec3d spawn = target.add(0, 12, 0);
@@ -261,16 +230,16 @@ public final class SpellExecutor {
         return true;
     }
 
-    private static boolean castPush(ServerPlayerEntity p) {
+    private static boolean castPush(ServerPlayerEntity p, Power s) {
         Vec3d dir = p.getRotationVec(1f).normalize();
-        double push = doubleValue("push", cfg -> cfg.power, 1.5);
+        double push = s.power();
         p.addVelocity(dir.x * push, dir.y * (push * 0.5), dir.z * push);
         p.velocityModified = true;
         return true;
     }
 
-    private static boolean castTeleport(ServerPlayerEntity p) {
-        double max = doubleValue("teleport", cfg -> cfg.power, 10.0);
+    private static boolean castTeleport(ServerPlayerEntity p, Power s) {
+        double max = s.power();
         HitResult hr = raycast(p, max);
         Vec3d start = p.getPos();
         Vec3d dir = p.getRotationVec(1f);
@@ -295,8 +264,8 @@ public final class SpellExecutor {
         return world.isSpaceEmpty(player, player.getBoundingBox().offset(offset)) && !world.containsFluid(player.getBoundingBox().offset(offset));
     }
 
-    private static boolean castPull(ServerPlayerEntity p) {
-        double range = doubleValue("pull", cfg -> cfg.power, 5.0);
+    private static boolean castPull(ServerPlayerEntity p, Power s) {
+        double range = s.power();
         EntityHitResult hit = raycastEntity(p, range);
         if (hit == null) return false;
         Entity target = hit.getEntity();
@@ -318,20 +287,28 @@ public final class SpellExecutor {
         return ProjectileUtil.getEntityCollision(player.getWorld(), player, start, end, box, entity -> !entity.isSpectator() && entity.isAlive(), ProjectileUtil.DEFAULT_MARGIN);
     }
 
-    private static double doubleValue(String id, Function<ModConfig.SpellCfg, Double> getter, double fallback) {
-        ModConfig.SpellCfg cfg = ModConfig.INSTANCE.spells.get(id);
-        if (cfg == null) return fallback;
-        Double value = getter.apply(cfg);
+    private static double reach() {
+        return ModConfig.INSTANCE.raycast_max_distance;
+    }
+
+    private static double or(Double value, double fallback) {
         return value != null ? value : fallback;
     }
 
-    private static int intValue(String id, Function<ModConfig.SpellCfg, Integer> getter, int fallback) {
-        ModConfig.SpellCfg cfg = ModConfig.INSTANCE.spells.get(id);
-        if (cfg == null) return fallback;
-        Integer value = getter.apply(cfg);
+    private static int or(Integer value, int fallback) {
         return value != null ? value : fallback;
     }
 
+    /** Settings of the block-placing and raycast spells; unused fields are 0. */
+    private record Placement(double reach, int size, double lifetimeSec) {}
+
+    private record Heal(int regenTicks, int saturationTicks) {}
+
+    /** Single-number settings: radius, range, push strength or duration, depending on the spell. */
+    private record Power(double power) {}
+
+    private record Fireball(float power, boolean blockDamage) {}
+
     private static void spawnCastParticles(ServerPlayerEntity player) {
         ServerWorld world = (ServerWorld) player.getWorld();
         Vec3d origin = player.getPos().add(0, 1.0, 0);
@@ -345,17 +322,18 @@ public final class SpellExecutor {
 
     private static class ExplodingFireball extends SmallFireballEntity {
         private final float power;
+        private final boolean blockDamage;
 
-        ExplodingFireball(World world, ServerPlayerEntity owner, double velX, double velY, double velZ, float power) {
+        ExplodingFireball(World world, ServerPlayerEntity owner, double velX, double velY, double velZ, float power, boolean blockDamage) {
             super(world, owner, new Vec3d(velX, velY, velZ));
             this.power = power;
+            this.blockDamage = blockDamage;
         }
 
         @Override
         protected void onCollision(HitResult hitResult) {
             super.onCollision(hitResult);
             if (!this.getWorld().isClient()) {
-                boolean blockDamage = ModConfig.INSTANCE.spells.get("fireball").blockDamage != null && ModConfig.INSTANCE.spells.get("fireball").blockDamage;
                 this.getWorld().createExplosion(this, getX(), getY(), getZ(), power, blockDamage, blockDamage ? World.ExplosionSourceType.MOB : World.ExplosionSourceType.NONE);
                 this.discard();
             }
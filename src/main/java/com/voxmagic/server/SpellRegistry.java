@@ -0,0 +1,107 @@
+package com.voxmagic.server;
+
+import com.voxmagic.common.config.ModConfig;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * All spells by compact integer id, in registration order. A name is looked up once when a
+ * cast arrives; mana cost and settings come from per-spell snapshots that are only rebuilt
+ * when {@link ModConfig#revision()} changes, so the cast itself does no string hashing or
+ * config-map lookups.
+ */
+public final class SpellRegistry {
+    private static final ModConfig.SpellCfg EMPTY = new ModConfig.SpellCfg();
+    private static final Object2IntOpenHashMap<String> IDS = new Object2IntOpenHashMap<>();
+    private static Entry<?>[] entries = new Entry<?>[0];
+    private static int revision = Integer.MIN_VALUE;
+
+    static {
+        IDS.defaultReturnValue(-1);
+    }
+
+    private SpellRegistry() {}
+
+    /** Adds a spell and returns its id; names are unique. */
+    public static synchronized int register(Spell<?> spell) {
+        String name = spell.name();
+        if (IDS.containsKey(name)) {
+            throw new IllegalArgumentException("Spell already registered: " + name);
+        }
+        int id = entries.length;
+        Entry<?> entry = new Entry<>(spell);
+        entry.resolve(ModConfig.INSTANCE);
+        entries = Arrays.copyOf(entries, id + 1);
+        entries[id] = entry;
+        IDS.put(name, id);
+        return id;
+    }
+
+    /** Id of the spell called {@code name}, or -1. */
+    public static int idOf(String name) {
+        return name == null ? -1 : IDS.getInt(name);
+    }
+
+    public static String name(int id) {
+        return entries[id].spell.name();
+    }
+
+    /** Names in id order. */
+    public static List<String> names() {
+        List<String> names = new ArrayList<>(entries.length);
+        for (Entry<?> entry : entries) {
+            names.add(entry.spell.name());
+        }
+        return names;
+    }
+
+    public static int size() {
+        return entries.length;
+    }
+
+    public static int manaCost(int id) {
+        return entry(id).manaCost;
+    }
+
+    public static boolean cast(ServerPlayerEntity player, int id) {
+        return entry(id).cast(player);
+    }
+
+    private static Entry<?> entry(int id) {
+        int current = ModConfig.revision();
+        if (revision != current) {
+            revision = current;
+            for (Entry<?> entry : entries) {
+                entry.resolve(ModConfig.INSTANCE);
+            }
+        }
+        return entries[id];
+    }
+
+    private static final class Entry<S> {
+        final Spell<S> spell;
+        S settings;
+        int manaCost;
+
+        Entry(Spell<S> spell) {
+            this.spell = spell;
+        }
+
+        void resolve(ModConfig config) {
+            ModConfig.SpellCfg cfg = config.spells == null ? null : config.spells.get(spell.name());
+            if (cfg == null) {
+                cfg = EMPTY;
+            }
+            settings = spell.resolve(cfg);
+            manaCost = cfg.mana_cost;
+        }
+
+        boolean cast(ServerPlayerEntity player) {
+            return spell.cast(player, settings);
+        }
+    }
+}
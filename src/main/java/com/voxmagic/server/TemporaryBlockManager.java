@@ -1,5 +1,6 @@
 package com.voxmagic.server;
 
+import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.registry.RegistryKey;
 import net.minecraft.server.MinecraftServer;
@@ -7,50 +8,130 @@ import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 
-import java.util.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
+/**
+ * Puts blocks changed by a spell back after its lifetime, via {@link TickScheduler}. Pending
+ * restores are also written to the {@link RestoreJournal} so they survive a restart or crash.
+ *
+ * <p>Every position currently holding a temporary block has one {@link BlockLayers.Layer} with
+ * the real world state underneath, the spell's block on top and a count of the casts that own it. Overlapping casts join the layer
+ * instead of recording another spell's block as the "previous" state, and the world state is
+ * only written back when the last owner expires.
+ */
 public final class TemporaryBlockManager {
-    private static final List<RestoreTask> TASKS = new ArrayList<>();
+    private static final Map<RegistryKey<World>, BlockLayers> LAYERS = new HashMap<>();
 
     private TemporaryBlockManager() {}
 
-    public static void scheduleRestore(World world, Map<BlockPos, BlockState> previousStates, double lifetimeSec) {
-        if (previousStates.isEmpty()) return;
-        int ticks = Math.max(1, (int) Math.round(lifetimeSec * 20));
-        Map<BlockPos, BlockState> copy = new HashMap<>();
-        for (Map.Entry<BlockPos, BlockState> entry : previousStates.entrySet()) {
-            copy.put(entry.getKey().toImmutable(), entry.getValue());
+    /** The state a spell should treat as being at {@code pos}: what lies under a temporary block. */
+    public static BlockState originalState(ServerWorld world, BlockPos pos) {
+        BlockState current = world.getBlockState(pos);
+        BlockLayers layers = LAYERS.get(world.getRegistryKey());
+        if (layers == null) {
+            return current;
         }
-        TASKS.add(new RestoreTask(world.getRegistryKey(), copy, ticks));
+        int id = Block.getRawIdFromState(current);
+        int original = layers.originalState(pos.asLong(), id);
+        return original == id ? current : Block.getStateFromRawId(original);
     }
 
-    public static void tick(MinecraftServer server) {
-        Iterator<RestoreTask> it = TASKS.iterator();
-        while (it.hasNext()) {
-            RestoreTask task = it.next();
-            task.ticks--;
-            if (task.ticks <= 0) {
-                ServerWorld world = server.getWorld(task.dimension);
-                if (world != null) {
-                    for (Map.Entry<BlockPos, BlockState> entry : task.states.entrySet()) {
-                        world.setBlockState(entry.getKey(), entry.getValue(), 3);
-                    }
+    /**
+     * Applies a spell's block batch and schedules the restore. Positions already under an intact
+     * temporary block are joined rather than written again, unless the block itself changes.
+     * Returns {@code false} if the cast owns no positions.
+     */
+    public static boolean place(ServerWorld world, BlockBatch batch, double lifetimeSec) {
+        if (batch.isEmpty()) return false;
+        BlockLayers layers = LAYERS.computeIfAbsent(world.getRegistryKey(), k -> new BlockLayers());
+        BlockSnapshot owned = new BlockSnapshot(batch.size());
+        int[] placed = new int[batch.size()];
+        BlockBatch fresh = new BlockBatch(world);
+        BlockBatch replaced = new BlockBatch(world);
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        for (int i = 0; i < batch.size(); i++) {
+            long packed = batch.position(i);
+            int state = Block.getRawIdFromState(batch.state(i));
+            BlockLayers.Layer layer = layers.join(packed, Block.getRawIdFromState(world.getBlockState(pos.set(packed))));
+            if (layer != null) {
+                placed[owned.size()] = state;
+                owned.add(packed, layer.original);
+                if (layer.placed != state) {
+                    layer.placed = state;
+                    replaced.set(packed, batch.state(i));
                 }
-                it.remove();
+            } else {
+                fresh.set(packed, batch.state(i));
+            }
+        }
+        replaced.apply();
+        BlockSnapshot written = fresh.apply();
+        for (int i = 0; i < written.size(); i++) {
+            long packed = written.position(i);
+            int state = Block.getRawIdFromState(world.getBlockState(pos.set(packed)));
+            layers.start(packed, written.stateId(i), state);
+            placed[owned.size()] = state;
+            owned.add(packed, written.stateId(i));
+        }
+        if (owned.isEmpty()) return false;
+        scheduleRestore(world, owned.trim(), Arrays.copyOf(placed, owned.size()), lifetimeSec);
+        return true;
+    }
+
+    /** Reopens the world's restore journal and re-schedules whatever it still had pending. */
+    public static void onServerStarted(MinecraftServer server) {
+        long now = RestoreJournal.clock(server);
+        for (RestoreJournal.Entry entry : RestoreJournal.open(server)) {
+            BlockLayers layers = LAYERS.computeIfAbsent(entry.dimension(), k -> new BlockLayers());
+            BlockSnapshot blocks = entry.blocks();
+            for (int i = 0; i < blocks.size(); i++) {
+                layers.replay(blocks.position(i), blocks.stateId(i), entry.placed()[i]);
             }
+            // Game time in level.dat can lag the journal after a crash, so never wait longer than
+            // the spell's own lifetime.
+            int ticks = (int) Math.max(1L, Math.min(entry.ticks(), entry.deadline() - now));
+            schedule(entry.id(), ticks, entry.dimension(), blocks);
         }
     }
 
-    private static final class RestoreTask {
-        final RegistryKey<World> dimension;
-        final Map<BlockPos, BlockState> states;
-        int ticks;
+    public static void onServerStopped() {
+        RestoreJournal.close();
+        LAYERS.clear();
+    }
 
-        RestoreTask(RegistryKey<World> dimension, Map<BlockPos, BlockState> states, int ticks) {
-            this.dimension = dimension;
-            this.states = states;
-            this.ticks = ticks;
+    private static void scheduleRestore(World world, BlockSnapshot owned, int[] placed, double lifetimeSec) {
+        int ticks = Math.max(1, (int) Math.round(lifetimeSec * 20));
+        RegistryKey<World> dimension = world.getRegistryKey();
+        MinecraftServer server = world.getServer();
+        long id = RestoreJournal.append(dimension, RestoreJournal.clock(server) + ticks, ticks, owned, placed);
+        schedule(id, ticks, dimension, owned);
+    }
+
+    private static void schedule(long id, int ticks, RegistryKey<World> dimension, BlockSnapshot owned) {
+        TickScheduler.schedule(ticks, server -> {
+            restore(server, dimension, owned);
+            RestoreJournal.complete(id);
+        });
+    }
+
+    /** Releases one cast's positions; only the last owner of an intact layer writes the world back. */
+    private static void restore(MinecraftServer server, RegistryKey<World> dimension, BlockSnapshot owned) {
+        BlockLayers layers = LAYERS.get(dimension);
+        ServerWorld world = server.getWorld(dimension);
+        if (layers == null || world == null) {
+            return;
         }
+        BlockBatch batch = new BlockBatch(world);
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        for (int i = 0; i < owned.size(); i++) {
+            long packed = owned.position(i);
+            BlockLayers.Layer layer = layers.release(packed);
+            if (layer != null && layer.isIntact(Block.getRawIdFromState(world.getBlockState(pos.set(packed))))) {
+                batch.set(packed, Block.getStateFromRawId(layer.original));
+            }
+        }
+        batch.apply();
     }
 }
-
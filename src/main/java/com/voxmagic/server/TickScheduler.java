@@ -0,0 +1,39 @@
+package com.voxmagic.server;
+
+import net.minecraft.server.MinecraftServer;
+
+import java.util.function.Consumer;
+
+/**
+ * Server-thread deadlines for spell effects (block restores, ghost expiry). Managers schedule
+ * an action {@code n} ticks ahead and keep the returned timer if they may cancel it; each
+ * END_SERVER_TICK only runs what is due. The clock counts server ticks since start-up, not
+ * world time, so {@code /time set} does not fire or stall anything.
+ */
+public final class TickScheduler {
+    private static final TimingWheel<MinecraftServer> WHEEL = new TimingWheel<>();
+
+    private TickScheduler() {}
+
+    public static TimingWheel.Timer<MinecraftServer> schedule(int ticks, Consumer<MinecraftServer> action) {
+        return WHEEL.schedule(ticks, action);
+    }
+
+    /** Server ticks since the scheduler started. */
+    public static long now() {
+        return WHEEL.now();
+    }
+
+    public static int pending() {
+        return WHEEL.size();
+    }
+
+    public static void tick(MinecraftServer server) {
+        WHEEL.advance(server);
+    }
+
+    /** Drops pending actions so nothing from a closed world runs in the next one. */
+    public static void clear() {
+        WHEEL.clear();
+    }
+}
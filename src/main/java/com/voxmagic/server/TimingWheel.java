@@ -0,0 +1,178 @@
+package com.voxmagic.server;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel keyed on an abstract tick counter: four levels of 256 slots, each
+ * slot an intrusive doubly linked list. {@link #schedule} and {@link Timer#cancel()} are O(1);
+ * {@link #advance} only touches the timers due on that tick, plus a cascade of one higher-level
+ * slot every 256 ticks. Not thread-safe; drive it from one thread.
+ *
+ * @param <C> context handed to each action when it fires (the server, for {@link TickScheduler})
+ */
+public final class TimingWheel<C> {
+    private static final int BITS = 8;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELAY = (1L << (BITS * LEVELS)) - 1;
+
+    private final Timer<C>[] buckets;
+    private final Timer<C>[] tails;
+    private long now = 0L;
+    private int size = 0;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel() {
+        this.buckets = (Timer<C>[]) new Timer[SLOTS * LEVELS];
+        this.tails = (Timer<C>[]) new Timer[SLOTS * LEVELS];
+    }
+
+    /** Runs {@code action} {@code delay} ticks from now (at least one). */
+    public Timer<C> schedule(long delay, Consumer<C> action) {
+        Timer<C> timer = new Timer<>(this, now + Math.max(1L, delay), action);
+        insert(timer);
+        size++;
+        return timer;
+    }
+
+    /** Moves to the next tick and runs every action due on it. */
+    public void advance(C context) {
+        now++;
+        int index = (int) (now & MASK);
+        if (index == 0) {
+            for (int level = 1; level < LEVELS && cascade(level) == 0; level++) {
+                // Keep cascading while the lower level wrapped too.
+            }
+        }
+        // Pop one at a time so actions may cancel timers further down this slot. Nothing new can
+        // land here: fresh deadlines are at least one tick ahead.
+        Timer<C> timer;
+        while ((timer = buckets[index]) != null) {
+            timer.unlink();
+            if (timer.deadline > now) {
+                insert(timer); // Clamped beyond the top level; not due yet.
+            } else {
+                size--;
+                timer.action.accept(context);
+            }
+        }
+    }
+
+    /** Ticks advanced so far. */
+    public long now() {
+        return now;
+    }
+
+    /** Timers scheduled and neither fired nor cancelled. */
+    public int size() {
+        return size;
+    }
+
+    /** Drops every pending timer without running it. */
+    public void clear() {
+        for (int i = 0; i < buckets.length; i++) {
+            Timer<C> timer = buckets[i];
+            while (timer != null) {
+                Timer<C> next = timer.next;
+                timer.prev = null;
+                timer.next = null;
+                timer.bucket = -1;
+                timer = next;
+            }
+            buckets[i] = null;
+            tails[i] = null;
+        }
+        size = 0;
+    }
+
+    /** Re-files one slot of {@code level} into lower levels; returns that slot's index. */
+    private int cascade(int level) {
+        int index = (int) ((now >>> (BITS * level)) & MASK);
+        Timer<C> timer = detach(level * SLOTS + index);
+        while (timer != null) {
+            Timer<C> next = timer.next;
+            insert(timer);
+            timer = next;
+        }
+        return index;
+    }
+
+    private Timer<C> detach(int bucket) {
+        Timer<C> head = buckets[bucket];
+        buckets[bucket] = null;
+        tails[bucket] = null;
+        return head;
+    }
+
+    private void insert(Timer<C> timer) {
+        long delta = Math.min(timer.deadline - now, MAX_DELAY);
+        long deadline = now + delta;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (BITS * (level + 1))) {
+            level++;
+        }
+        int bucket = level * SLOTS + (int) ((deadline >>> (BITS * level)) & MASK);
+        Timer<C> tail = tails[bucket];
+        timer.prev = tail;
+        timer.next = null;
+        if (tail != null) {
+            tail.next = timer;
+        } else {
+            buckets[bucket] = timer;
+        }
+        tails[bucket] = timer;
+        timer.bucket = bucket;
+    }
+
+    /** A scheduled action; {@link #cancel()} unlinks it in O(1). */
+    public static final class Timer<C> {
+        private final TimingWheel<C> wheel;
+        private final long deadline;
+        private final Consumer<C> action;
+        private Timer<C> prev;
+        private Timer<C> next;
+        private int bucket = -1;
+
+        private Timer(TimingWheel<C> wheel, long deadline, Consumer<C> action) {
+            this.wheel = wheel;
+            this.deadline = deadline;
+            this.action = action;
+        }
+
+        public boolean isPending() {
+            return bucket >= 0;
+        }
+
+        /** Ticks until this fires (0 once fired or cancelled). */
+        public long remaining() {
+            return isPending() ? Math.max(0L, deadline - wheel.now) : 0L;
+        }
+
+        /** Returns {@code false} if it already fired or was cancelled. */
+        public boolean cancel() {
+            if (bucket < 0) {
+                return false;
+            }
+            unlink();
+            wheel.size--;
+            return true;
+        }
+
+        private void unlink() {
+            if (prev != null) {
+                prev.next = next;
+            } else {
+                wheel.buckets[bucket] = next;
+            }
+            if (next != null) {
+                next.prev = prev;
+            } else {
+                wheel.tails[bucket] = prev;
+            }
+            prev = null;
+            next = null;
+            bucket = -1;
+        }
+    }
+}
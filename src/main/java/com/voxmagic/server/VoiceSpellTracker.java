@@ -2,13 +2,13 @@ package com.voxmagic.server;
 
 import com.voxmagic.VoxMagicMode;
 import com.voxmagic.common.config.ModConfig;
+import com.voxmagic.common.voice.PhraseText;
 import com.voxmagic.network.NetworkInit;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.Text;
 
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
 
@@ -36,11 +36,12 @@ public final class VoiceSpellTracker {
         last.nonce = payload.nonce;
         last.processedAt = now;
 
-        String spellId = payload.spellId;
-        if (spellId == null || spellId.isEmpty()) {
-            return false;
+        // Without a transcript there is nothing to tell a shared phrase from two separate casts.
+        if (payload.transcript == null) {
+            return true;
         }
 
+        int spellId = payload.spellId;
         SpellKey key = new SpellKey(spellId, canonicalize(payload.transcript));
         ActiveCast active = ACTIVE_CASTS.get(key);
         if (active != null && active.expiresAt > now) {
@@ -48,8 +49,9 @@ public final class VoiceSpellTracker {
                 active.expiresAt = now + SHARE_WINDOW_MS;
                 return true;
             }
-            notifySuppressed(player, active.playerName, spellId);
-            VoxMagicMode.LOGGER.debug("Ignoring spell '{}' from {} because {} recently cast it", spellId, player.getGameProfile().getName(), active.playerName);
+            String name = SpellRegistry.name(spellId);
+            notifySuppressed(player, active.playerName, name);
+            VoxMagicMode.LOGGER.debug("Ignoring spell '{}' from {} because {} recently cast it", name, player.getGameProfile().getName(), active.playerName);
             return false;
         }
 
@@ -97,34 +99,11 @@ public final class VoiceSpellTracker {
     }
 
     private static String canonicalize(String transcript) {
-        if (transcript == null) {
-            return "";
-        }
-        String lower = transcript.toLowerCase(Locale.ROOT);
-        StringBuilder sb = new StringBuilder(lower.length());
-        boolean space = false;
-        for (int i = 0; i < lower.length(); i++) {
-            char c = lower.charAt(i);
-            if (Character.isLetterOrDigit(c)) {
-                sb.append(c);
-                space = false;
-            } else if (!space) {
-                sb.append(' ');
-                space = true;
-            }
-        }
-        int len = sb.length();
-        while (len > 0 && sb.charAt(len - 1) == ' ') {
-            sb.deleteCharAt(--len);
-        }
-        while (sb.length() > 0 && sb.charAt(0) == ' ') {
-            sb.deleteCharAt(0);
-        }
-        return sb.toString();
+        return PhraseText.normalize(transcript);
     }
 
     private static final class LastNonce {
-        long nonce = -1L;
+        int nonce = -1;
         long processedAt = 0L;
     }
 
@@ -141,10 +120,10 @@ public final class VoiceSpellTracker {
     }
 
     private static final class SpellKey {
-        final String spellId;
+        final int spellId;
         final String transcript;
 
-        private SpellKey(String spellId, String transcript) {
+        private SpellKey(int spellId, String transcript) {
             this.spellId = spellId;
             this.transcript = transcript;
         }
@@ -153,12 +132,12 @@ public final class VoiceSpellTracker {
         public boolean equals(Object o) {
             if (this == o) return true;
             if (!(o instanceof SpellKey key)) return false;
-            return spellId.equals(key.spellId) && transcript.equals(key.transcript);
+            return spellId == key.spellId && transcript.equals(key.transcript);
         }
 
         @Override
         public int hashCode() {
-            int result = spellId.hashCode();
+            int result = spellId;
             result = 31 * result + transcript.hashCode();
             return result;
         }
@@ -1,6 +1,5 @@
 package com.voxmagic.server;
 
-import com.voxmagic.common.config.ModConfig;
 import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.arguments.BoolArgumentType;
 import com.mojang.brigadier.arguments.StringArgumentType;
@@ -15,6 +14,7 @@ import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.Text;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Locale;
 
 public final class VoxMagicCommands {
@@ -69,17 +69,18 @@ public final class VoxMagicCommands {
     }
 
     private static int listSpells(CommandContext<ServerCommandSource> ctx) {
-        if (ModConfig.INSTANCE.spells == null || ModConfig.INSTANCE.spells.isEmpty()) {
+        List<String> names = SpellRegistry.names();
+        if (names.isEmpty()) {
             ctx.getSource().sendFeedback(() -> Text.literal("[VoxMagic] \u0417\u0430\u043a\u043b\u0438\u043d\u0430\u043d\u0438\u044f \u043d\u0435 \u0437\u0430\u0440\u0435\u0433\u0438\u0441\u0442\u0440\u0438\u0440\u043e\u0432\u0430\u043d\u044b."), false);
             return 0;
         }
-        String joined = String.join(", ", ModConfig.INSTANCE.spells.keySet());
+        String joined = String.join(", ", names);
         ctx.getSource().sendFeedback(() -> Text.literal("[VoxMagic] \u0417\u0430\u043a\u043b\u0438\u043d\u0430\u043d\u0438\u0435: " + joined), false);
-        return ModConfig.INSTANCE.spells.size();
+        return names.size();
     }
 
     private static boolean isKnownSpell(String spellId) {
-        return ModConfig.INSTANCE != null && ModConfig.INSTANCE.spells != null && ModConfig.INSTANCE.spells.containsKey(spellId);
+        return SpellRegistry.idOf(spellId) >= 0;
     }
 }
 
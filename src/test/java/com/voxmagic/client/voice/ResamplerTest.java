@@ -0,0 +1,168 @@
+package com.voxmagic.client.voice;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResamplerTest {
+    private static final int[] MIC_RATES = {48000, 44100, 32000, 22050};
+    private static final double AMPLITUDE = 10000;
+
+    @Test
+    void passbandSineKeepsGainAndShape() {
+        for (int rate : MIC_RATES) {
+            for (int freq : new int[]{300, 1000, 3000}) {
+                short[] out = resample(rate, sine(rate, freq, rate * 2));
+                double[] fit = fitSine(out, out.length / 4, out.length, freq);
+                double gainDb = 20 * Math.log10(fit[0] / AMPLITUDE);
+                assertEquals(0.0, gainDb, 0.1, rate + " Hz -> " + freq + " Hz gain");
+                assertTrue(fit[1] > 70, rate + " Hz -> " + freq + " Hz SNR " + fit[1]);
+            }
+        }
+    }
+
+    @Test
+    void outOfBandToneIsRejected() {
+        for (int rate : new int[]{48000, 44100}) {
+            short[] out = resample(rate, sine(rate, 12000, rate * 2));
+            double rms = rms(out, out.length / 4, out.length);
+            assertTrue(rms < AMPLITUDE * 1e-3, rate + " Hz: 12 kHz tone left RMS " + rms);
+        }
+    }
+
+    /** A 100 Hz to 3.5 kHz sweep must come out as the same sweep, only delayed by the filter. */
+    @Test
+    void chirpFollowsIdealSweep() {
+        double f0 = 100, f1 = 3500, seconds = 2;
+        for (int rate : MIC_RATES) {
+            int n = (int) (rate * seconds);
+            double sweep = (f1 - f0) / seconds;
+            short[] in = new short[n];
+            for (int i = 0; i < n; i++) {
+                in[i] = Pcm.clip((float) chirp(i / (double) rate, f0, sweep));
+            }
+            short[] out = resample(rate, in);
+            double delay = filterDelay(rate) / rate;
+            double err = 0, power = 0;
+            for (int m = 64; m < out.length - 64; m++) {
+                double ideal = chirp(m / (double) Resampler.TARGET_RATE - delay, f0, sweep);
+                err += (out[m] - ideal) * (out[m] - ideal);
+                power += ideal * ideal;
+            }
+            double snr = 10 * Math.log10(power / err);
+            assertTrue(snr > 50, rate + " Hz chirp SNR " + snr);
+        }
+    }
+
+    @Test
+    void chunkedStreamMatchesOneShot() {
+        short[] in = sine(44100, 1000, 44100);
+        short[] whole = resample(44100, in);
+        Resampler resampler = new Resampler(44100, Resampler.TARGET_RATE, 4096);
+        short[] out = new short[resampler.maxOutput(in.length) + 64];
+        short[] chunk = new short[1000];
+        int produced = 0;
+        for (int off = 0, size = 1; off < in.length; off += size, size = size * 7 % 997 + 1) {
+            int len = Math.min(size, in.length - off);
+            System.arraycopy(in, off, chunk, 0, len);
+            short[] part = new short[resampler.maxOutput(len)];
+            int count = resampler.process(chunk, len, part);
+            System.arraycopy(part, 0, out, produced, count);
+            produced += count;
+        }
+        assertEquals(whole.length, produced);
+        assertArrayEquals(whole, Arrays.copyOf(out, produced));
+    }
+
+    @Test
+    void sameRateIsCopied() {
+        short[] in = sine(16000, 1000, 1600);
+        assertArrayEquals(in, resample(16000, in));
+    }
+
+    /** Loose bound so slow CI machines pass; the mic path only needs real time. */
+    @Test
+    void runsFarFasterThanRealTime() {
+        int rate = 48000;
+        int seconds = 30;
+        short[] frame = sine(rate, 1000, 1440);
+        Resampler resampler = new Resampler(rate, Resampler.TARGET_RATE, frame.length);
+        short[] out = new short[resampler.maxOutput(frame.length)];
+        for (int i = 0; i < 2000; i++) {
+            resampler.process(frame, frame.length, out);
+        }
+        int frames = seconds * rate / frame.length;
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            resampler.process(frame, frame.length, out);
+        }
+        double elapsedSec = (System.nanoTime() - start) / 1e9;
+        assertTrue(seconds / elapsedSec > 20, "48 kHz resampling ran at " + seconds / elapsedSec + "x real time");
+    }
+
+    private static short[] resample(int rate, short[] in) {
+        Resampler resampler = new Resampler(rate, Resampler.TARGET_RATE, 4096);
+        short[] out = new short[resampler.maxOutput(in.length)];
+        int count = resampler.process(in, in.length, out);
+        return Arrays.copyOf(out, count);
+    }
+
+    private static short[] sine(int rate, double freq, int n) {
+        short[] samples = new short[n];
+        for (int i = 0; i < n; i++) {
+            samples[i] = Pcm.clip((float) (AMPLITUDE * Math.sin(2 * Math.PI * freq * i / rate)));
+        }
+        return samples;
+    }
+
+    private static double chirp(double t, double f0, double sweep) {
+        return AMPLITUDE * Math.sin(2 * Math.PI * (f0 * t + 0.5 * sweep * t * t));
+    }
+
+    /** Centre of the windowed sinc, in input samples. */
+    private static double filterDelay(int rate) {
+        int up = Resampler.TARGET_RATE / gcd(rate, Resampler.TARGET_RATE);
+        return (32.0 * up - 1) / (2.0 * up);
+    }
+
+    /** Least-squares fit of a sine at {@code freq}; returns amplitude and SNR of the residual in dB. */
+    private static double[] fitSine(short[] y, int from, int to, double freq) {
+        double ss = 0, cc = 0, sc = 0, ys = 0, yc = 0;
+        for (int k = from; k < to; k++) {
+            double w = 2 * Math.PI * freq * k / Resampler.TARGET_RATE;
+            double s = Math.sin(w), c = Math.cos(w);
+            ss += s * s;
+            cc += c * c;
+            sc += s * c;
+            ys += y[k] * s;
+            yc += y[k] * c;
+        }
+        double det = ss * cc - sc * sc;
+        double a = (ys * cc - yc * sc) / det;
+        double b = (yc * ss - ys * sc) / det;
+        double err = 0, power = 0;
+        for (int k = from; k < to; k++) {
+            double w = 2 * Math.PI * freq * k / Resampler.TARGET_RATE;
+            double fit = a * Math.sin(w) + b * Math.cos(w);
+            err += (y[k] - fit) * (y[k] - fit);
+            power += fit * fit;
+        }
+        return new double[]{Math.hypot(a, b), 10 * Math.log10(power / err)};
+    }
+
+    private static double rms(short[] y, int from, int to) {
+        double sum = 0;
+        for (int k = from; k < to; k++) {
+            sum += (double) y[k] * y[k];
+        }
+        return Math.sqrt(sum / (to - from));
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+}
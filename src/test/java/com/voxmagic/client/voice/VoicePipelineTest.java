@@ -0,0 +1,222 @@
+package com.voxmagic.client.voice;
+
+import com.voxmagic.common.config.ModConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Replays scripted Vosk partial results through {@link VoicePipeline}, one per 30 ms chunk,
+ * and checks when spells fire early. "strike" is a prefix of "strike wave", so it has to stay
+ * the best match for {@code partial_stability_ms} (150 ms, five chunks) before it fires.
+ */
+class VoicePipelineTest {
+    private static final int STABILITY_MS = 150;
+
+    @Test
+    void unambiguousPartialFiresOnItsChunk() {
+        Replay replay = replay("", "str", "strike", "strike wa", "strike wave", "strike wave", "strike wave");
+        assertEquals(1, replay.fired.size());
+        Fire fire = replay.fired.get(0);
+        assertEquals("shockwave", fire.utterance.spellId());
+        assertTrue(fire.utterance.early());
+        assertEquals(5, fire.chunk);
+    }
+
+    @Test
+    void prefixPartialWaitsForStability() {
+        Replay replay = replay("str", "strike", "strike", "strike", "strike", "strike", "strike", "strike", "strike");
+        assertEquals(1, replay.fired.size());
+        Fire fire = replay.fired.get(0);
+        assertEquals("push", fire.utterance.spellId());
+        assertTrue(fire.utterance.early());
+        // First seen on chunk 2 at 60 ms; 150 ms later is chunk 7.
+        assertEquals(7, fire.chunk);
+    }
+
+    @Test
+    void prefixThatGrowsIntoLongerPhraseFiresOnlyTheLonger() {
+        Replay replay = replay("strike", "strike", "strike w", "strike wave", "strike wave");
+        assertEquals(1, replay.fired.size());
+        assertEquals("shockwave", replay.fired.get(0).utterance.spellId());
+        assertEquals(4, replay.fired.get(0).chunk);
+    }
+
+    @Test
+    void changingPartialRestartsTheWait() {
+        // "strike" stays for four chunks only, then a different word replaces it.
+        Replay replay = replay("strike", "strike", "strike", "strike", "hello", "hello", "hello", "hello", "hello", "hello");
+        assertEquals(0, replay.fired.size());
+    }
+
+    /**
+     * The AGC must not lift steady room noise over the VAD threshold and keep the decoder busy.
+     * The first second is left out: the VAD may open while the noise suppressor learns the floor.
+     */
+    @Test
+    void steadyNoiseWithDefaultStagesNeverReachesTheDecoder() {
+        ModConfig config = config();
+        config.voice.vad_enabled = true;
+        config.voice.dc_filter = true;
+        config.voice.noise_suppression = true;
+        config.voice.agc_enabled = true;
+        ModConfig.INSTANCE = config;
+        int chunks = 10 * 1000 / 30;
+        ScriptedRecognizer recognizer = new ScriptedRecognizer(new String[]{""});
+        ScriptedSource source = new ScriptedSource(chunks, 200);
+        recognizer.source = source;
+        VoicePipeline pipeline = new VoicePipeline(session(recognizer), source, u -> {});
+        pipeline.run();
+        int settled = 1000 / 30;
+        List<Integer> late = recognizer.fedAt.stream().filter(chunk -> chunk > settled).toList();
+        assertEquals(List.of(), late, "chunks decoded after the first second");
+    }
+
+    private static ModConfig config() {
+        ModConfig config = ModConfig.defaults();
+        config.voice.debug_chat = false;
+        config.voice.vad_enabled = false;
+        config.voice.dc_filter = false;
+        config.voice.noise_suppression = false;
+        config.voice.agc_enabled = false;
+        config.voice.use_grammar = false;
+        config.voice.partial_stability_ms = STABILITY_MS;
+        config.voice.phrases.put("push", List.of("strike"));
+        config.voice.phrases.put("shockwave", List.of("strike wave"));
+        return config;
+    }
+
+    private static RecognitionSession session(SpeechRecognizer recognizer) {
+        SpeechModel model = new SpeechModel() {
+            @Override
+            public SpeechRecognizer newRecognizer(float sampleRate, String grammar) {
+                return recognizer;
+            }
+
+            @Override
+            public void close() {}
+        };
+        try {
+            return RecognitionSession.open(model, Resampler.TARGET_RATE, null);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static Replay replay(String... partials) {
+        ModConfig.INSTANCE = config();
+        ScriptedRecognizer recognizer = new ScriptedRecognizer(partials);
+        ScriptedSource source = new ScriptedSource(partials.length, 0);
+        Replay replay = new Replay();
+        VoicePipeline pipeline = new VoicePipeline(session(recognizer), source, u -> replay.fired.add(new Fire(u, source.chunks)));
+        pipeline.run();
+        return replay;
+    }
+
+    private record Fire(VoicePipeline.Utterance utterance, int chunk) {}
+
+    private static final class Replay {
+        final List<Fire> fired = new ArrayList<>();
+    }
+
+    /** Serves the next scripted partial per fed chunk; once reset it has nothing more to say. */
+    private static final class ScriptedRecognizer implements SpeechRecognizer {
+        private final String[] partials;
+        private int fed = 0;
+        private boolean spent = false;
+        ScriptedSource source;
+        final List<Integer> fedAt = new ArrayList<>();
+
+        ScriptedRecognizer(String[] partials) {
+            this.partials = partials;
+        }
+
+        @Override
+        public boolean acceptWaveForm(short[] data, int len) {
+            fed++;
+            if (source != null) {
+                fedAt.add(source.chunks);
+            }
+            return false;
+        }
+
+        @Override
+        public String getPartialResult() {
+            String text = spent || fed == 0 ? "" : partials[Math.min(fed, partials.length) - 1];
+            return "{\"partial\" : \"" + text + "\"}";
+        }
+
+        @Override
+        public String getResult() {
+            return "{\"text\" : \"\"}";
+        }
+
+        @Override
+        public String getFinalResult() {
+            return "{\"text\" : \"\"}";
+        }
+
+        @Override
+        public void reset() {
+            spent = fed > 0;
+        }
+
+        @Override
+        public void setGrammar(String grammar) {}
+
+        @Override
+        public void setWords(boolean words) {}
+
+        @Override
+        public void setPartialWords(boolean partialWords) {}
+
+        @Override
+        public void close() {}
+    }
+
+    /**
+     * 16 kHz audio, one 30 ms chunk per read: a loud square wave, or white noise of
+     * {@code noiseRms} when that is non-zero.
+     */
+    private static final class ScriptedSource implements AudioSource {
+        private final int total;
+        private final double noiseRms;
+        private final Random random = new Random(5);
+        int chunks = 0;
+
+        ScriptedSource(int total, double noiseRms) {
+            this.total = total;
+            this.noiseRms = noiseRms;
+        }
+
+        @Override
+        public float sampleRate() {
+            return Resampler.TARGET_RATE;
+        }
+
+        @Override
+        public int read(short[] dst, int len, long timeoutNanos) {
+            if (chunks == total) {
+                return -1;
+            }
+            chunks++;
+            for (int i = 0; i < len; i++) {
+                dst[i] = noiseRms > 0 ? Pcm.clip((float) (random.nextGaussian() * noiseRms)) : (short) ((i & 16) == 0 ? 2000 : -2000);
+            }
+            return len;
+        }
+
+        @Override
+        public long clockNanos() {
+            return chunks * 30_000_000L;
+        }
+
+        @Override
+        public void close() {}
+    }
+}
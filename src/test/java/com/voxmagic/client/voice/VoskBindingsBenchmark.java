@@ -0,0 +1,120 @@
+package com.voxmagic.client.voice;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+
+/**
+ * Dispatch cost per audio frame of the old reflective recognizer calls ({@code Method.invoke}
+ * with an argument array and a boxed result) versus {@link SpeechRecognizer}. The recognizer is a
+ * stub that does almost no work, so only the call itself is measured. Plain Java, no Vosk
+ * needed: {@code ./gradlew bindingsBenchmark}.
+ */
+public final class VoskBindingsBenchmark {
+    private static final int FRAME_SAMPLES = 480;
+    private static final int WARMUP_FRAMES = 2_000_000;
+    private static final int MEASURED_FRAMES = 2_000_000;
+    private static final int ROUNDS = 5;
+
+    private VoskBindingsBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        short[] frame = new short[FRAME_SAMPLES];
+        for (int i = 0; i < frame.length; i++) {
+            frame[i] = (short) (1000 * Math.sin(i * 0.1));
+        }
+        StubRecognizer stub = new StubRecognizer();
+        Method accept = StubRecognizer.class.getMethod("acceptWaveForm", short[].class, int.class);
+        Method partial = StubRecognizer.class.getMethod("getPartialResult");
+        SpeechRecognizer typed = stub;
+
+        reflective(stub, accept, partial, frame, WARMUP_FRAMES);
+        typed(typed, frame, WARMUP_FRAMES);
+        System.out.println(String.format(Locale.ROOT, "%6s %22s %22s", "round", "reflection ns/frame", "interface ns/frame"));
+        for (int round = 1; round <= ROUNDS; round++) {
+            double reflection = reflective(stub, accept, partial, frame, MEASURED_FRAMES);
+            double direct = typed(typed, frame, MEASURED_FRAMES);
+            System.out.println(String.format(Locale.ROOT, "%6d %22.2f %22.2f", round, reflection, direct));
+        }
+        System.out.println("checksum " + stub.fed);
+    }
+
+    /** The pre-bindings frame path: accept plus a partial poll, both through {@link Method#invoke}. */
+    private static double reflective(Object recognizer, Method accept, Method partial, short[] frame, int frames) throws Exception {
+        long start = System.nanoTime();
+        int ends = 0;
+        for (int i = 0; i < frames; i++) {
+            if ((boolean) accept.invoke(recognizer, frame, frame.length)) {
+                ends++;
+            }
+            if (((String) partial.invoke(recognizer)).isEmpty()) {
+                ends--;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        sink(ends);
+        return elapsed / (double) frames;
+    }
+
+    private static double typed(SpeechRecognizer recognizer, short[] frame, int frames) {
+        long start = System.nanoTime();
+        int ends = 0;
+        for (int i = 0; i < frames; i++) {
+            if (recognizer.acceptWaveForm(frame, frame.length)) {
+                ends++;
+            }
+            if (recognizer.getPartialResult().isEmpty()) {
+                ends--;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        sink(ends);
+        return elapsed / (double) frames;
+    }
+
+    private static volatile int sink;
+
+    private static void sink(int value) {
+        sink += value;
+    }
+
+    /** Touches one sample per frame so the call cannot be removed. */
+    public static final class StubRecognizer implements SpeechRecognizer {
+        long fed;
+
+        @Override
+        public boolean acceptWaveForm(short[] data, int len) {
+            fed += data[len - 1];
+            return (fed & 1023) == 0;
+        }
+
+        @Override
+        public String getResult() {
+            return "{}";
+        }
+
+        @Override
+        public String getPartialResult() {
+            return "{\"partial\" : \"\"}";
+        }
+
+        @Override
+        public String getFinalResult() {
+            return "{}";
+        }
+
+        @Override
+        public void reset() {}
+
+        @Override
+        public void setGrammar(String grammar) {}
+
+        @Override
+        public void setWords(boolean words) {}
+
+        @Override
+        public void setPartialWords(boolean partialWords) {}
+
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,121 @@
+package com.voxmagic.client.voice;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VoskJsonReaderTest {
+    private final VoskJsonReader reader = new VoskJsonReader();
+
+    @Test
+    void readsPartialAndText() {
+        assertTrue(reader.read("{\n  \"partial\" : \"strike wave\"\n}", "partial", "partial_result"));
+        assertEquals("strike wave", reader.text());
+        assertTrue(Float.isNaN(reader.confidence()));
+
+        assertTrue(reader.read("{\n  \"text\" : \"heal\"\n}", "text", "result"));
+        assertEquals("heal", reader.text());
+    }
+
+    @Test
+    void resultArrayGivesLowestConfidence() {
+        String json = "{\n"
+                + "  \"result\" : [{\n"
+                + "      \"conf\" : 0.912345,\n"
+                + "      \"end\" : 1.23,\n"
+                + "      \"start\" : 0.81,\n"
+                + "      \"word\" : \"strike\"\n"
+                + "    }, {\n"
+                + "      \"conf\" : 0.5,\n"
+                + "      \"end\" : 1.65,\n"
+                + "      \"start\" : 1.23,\n"
+                + "      \"word\" : \"wave\"\n"
+                + "    }],\n"
+                + "  \"text\" : \"strike wave\"\n"
+                + "}";
+        assertTrue(reader.read(json, "text", "result"));
+        assertEquals("strike wave", reader.text());
+        assertEquals(0.5f, reader.confidence(), 1e-6f);
+    }
+
+    @Test
+    void wordsWithoutConfAndEmptyArraysAreSkipped() {
+        assertTrue(reader.read("{\"result\" : [], \"text\" : \"dome\"}", "text", "result"));
+        assertEquals("dome", reader.text());
+        assertTrue(Float.isNaN(reader.confidence()));
+
+        assertTrue(reader.read("{\"result\" : [{}, {\"word\" : \"wall\"}], \"text\" : \"wall\"}", "text", "result"));
+        assertEquals("wall", reader.text());
+        assertTrue(Float.isNaN(reader.confidence()));
+    }
+
+    @Test
+    void decodesEscapes() {
+        // Vosk escapes non-ASCII output: "molniya" in Cyrillic.
+        assertTrue(reader.read("{\"text\" : \"\\u043c\\u043e\\u043b\\u043d\\u0438\\u044f\"}", "text", "result"));
+        assertEquals("\u043c\u043e\u043b\u043d\u0438\u044f", reader.text());
+
+        assertTrue(reader.read("{\"text\" : \"a\\\"b\\\\c\\nd\\/e\"}", "text", "result"));
+        assertEquals("a\"b\\c\nd/e", reader.text());
+    }
+
+    @Test
+    void emptyObjectAndEmptyTextGiveEmptyText() {
+        assertTrue(reader.read("{}", "text", "result"));
+        assertEquals("", reader.text());
+        assertTrue(reader.read("  {  }  ", "partial", "partial_result"));
+        assertEquals("", reader.text());
+        assertTrue(reader.read("{\"partial\" : \"\"}", "partial", "partial_result"));
+        assertEquals("", reader.text());
+    }
+
+    @Test
+    void readsExponentAndNegativeNumbers() {
+        assertTrue(reader.read("{\"result\" : [{\"conf\" : 1.0E-2}, {\"conf\" : 5e-1}], \"text\" : \"x\"}", "text", "result"));
+        assertEquals(0.01f, reader.confidence(), 1e-7f);
+        assertTrue(reader.read("{\"result\" : [{\"conf\" : -0.25}, {\"conf\" : 1}], \"text\" : \"x\"}", "text", "result"));
+        assertEquals(-0.25f, reader.confidence(), 1e-7f);
+        assertTrue(reader.read("{\"result\" : [{\"conf\" : 2.5E+0}], \"text\" : \"x\"}", "text", "result"));
+        assertEquals(2.5f, reader.confidence(), 1e-7f);
+    }
+
+    @Test
+    void skipsUnknownValuesOfEveryKind() {
+        String json = "{\"alternatives\" : [{\"text\" : \"no\", \"nested\" : {\"a\" : [1, 2]}}], \"flag\" : true,"
+                + " \"none\" : null, \"n\" : -3.5e2, \"s\" : \"}]\", \"text\" : \"push\"}";
+        assertTrue(reader.read(json, "text", "result"));
+        assertEquals("push", reader.text());
+    }
+
+    @Test
+    void malformedInputReturnsFalse() {
+        String[] bad = {
+                null,
+                "",
+                "[]",
+                "{",
+                "{\"text\" : \"unterminated}",
+                "{\"text\" \"missing colon\"}",
+                "{\"text\" : \"a\" \"b\" : 1}",
+                "{\"result\" : [{\"conf\" : }], \"text\" : \"x\"}",
+                "{\"result\" : [{\"conf\" : 0.5}, \"text\" : \"x\"}",
+                "{\"text\" : \"\\u04\"}",
+        };
+        for (String json : bad) {
+            assertFalse(reader.read(json, "text", "result"), String.valueOf(json));
+            assertEquals("", reader.text(), String.valueOf(json));
+            assertTrue(Float.isNaN(reader.confidence()), String.valueOf(json));
+        }
+    }
+
+    @Test
+    void unchangedTextReusesTheSameString() {
+        reader.read("{\"partial\" : \"strike\"}", "partial", "partial_result");
+        String first = reader.text();
+        reader.read("{\"partial\" : \"strike\"}", "partial", "partial_result");
+        assertSame(first, reader.text());
+    }
+}
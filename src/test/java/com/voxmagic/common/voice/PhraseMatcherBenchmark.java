@@ -0,0 +1,114 @@
+package com.voxmagic.common.voice;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Time per transcript of {@link PhraseMatcher} versus the linear alias scan it replaced (exact
+ * lookup, per-token lookup, then a {@code contains} over every alias) as the phrase list grows.
+ * Half the transcripts contain a phrase, the rest match nothing, which is the scan's worst
+ * case. Plain Java: {@code ./gradlew phraseBenchmark}.
+ */
+public final class PhraseMatcherBenchmark {
+    private static final int TRANSCRIPTS = 2_000;
+    private static final int WARMUP_ROUNDS = 30;
+    private static final int MEASURED_ROUNDS = 20;
+    /** Latin, Cyrillic and Greek lower-case ranges, like mixed-language phrase configs. */
+    private static final char[][] ALPHABETS = {{'a', 'z'}, {'\u0430', '\u044f'}, {'\u03b1', '\u03c9'}};
+
+    private PhraseMatcherBenchmark() {}
+
+    public static void main(String[] args) {
+        System.out.println(String.format(Locale.ROOT, "%8s %18s %18s %10s %10s", "phrases", "scan us/text", "automaton us/text", "scan hits", "ac hits"));
+        for (int count : new int[]{30, 300, 1_800}) {
+            Random random = new Random(42);
+            Map<String, String> aliases = new HashMap<>();
+            List<String> phrases = new ArrayList<>();
+            PhraseMatcher.Builder builder = PhraseMatcher.builder();
+            while (phrases.size() < count) {
+                String phrase = words(random, 1 + random.nextInt(2));
+                if (aliases.putIfAbsent(phrase, "s" + phrases.size()) == null) {
+                    builder.add("s" + phrases.size(), phrase, false);
+                    phrases.add(phrase);
+                }
+            }
+            PhraseMatcher matcher = builder.build();
+            String[] texts = new String[TRANSCRIPTS];
+            for (int i = 0; i < texts.length; i++) {
+                String text = words(random, 3 + random.nextInt(5));
+                if (i % 2 == 0) {
+                    text = text + " " + phrases.get(random.nextInt(phrases.size()));
+                }
+                texts[i] = text;
+            }
+            int[] hits = new int[2];
+            for (int round = 0; round < WARMUP_ROUNDS; round++) {
+                scan(aliases, texts, hits);
+                automaton(matcher, texts, hits);
+            }
+            hits[0] = hits[1] = 0;
+            long scanNanos = 0L, acNanos = 0L;
+            for (int round = 0; round < MEASURED_ROUNDS; round++) {
+                long start = System.nanoTime();
+                scan(aliases, texts, hits);
+                scanNanos += System.nanoTime() - start;
+                start = System.nanoTime();
+                automaton(matcher, texts, hits);
+                acNanos += System.nanoTime() - start;
+            }
+            double per = 1e3 * MEASURED_ROUNDS * TRANSCRIPTS;
+            System.out.println(String.format(Locale.ROOT, "%,8d %18.2f %18.2f %10d %10d", count, scanNanos / per, acNanos / per,
+                    hits[0] / MEASURED_ROUNDS, hits[1] / MEASURED_ROUNDS));
+        }
+    }
+
+    private static void scan(Map<String, String> aliases, String[] texts, int[] hits) {
+        for (String text : texts) {
+            if (linearMatch(aliases, text) != null) {
+                hits[0]++;
+            }
+        }
+    }
+
+    private static void automaton(PhraseMatcher matcher, String[] texts, int[] hits) {
+        for (String text : texts) {
+            if (matcher.find(text) != null) {
+                hits[1]++;
+            }
+        }
+    }
+
+    /** The pre-automaton matcher, restricted to whole words like config phrases. */
+    private static String linearMatch(Map<String, String> aliases, String normalized) {
+        String direct = aliases.get(normalized);
+        if (direct != null) return direct;
+        for (String token : normalized.split(" ")) {
+            direct = aliases.get(token);
+            if (direct != null) return direct;
+        }
+        String padded = " " + normalized + " ";
+        for (Map.Entry<String, String> entry : aliases.entrySet()) {
+            if (padded.contains(" " + entry.getKey() + " ")) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static String words(Random random, int count) {
+        char[] alphabet = ALPHABETS[random.nextInt(ALPHABETS.length)];
+        StringBuilder sb = new StringBuilder();
+        for (int w = 0; w < count; w++) {
+            if (w > 0) sb.append(' ');
+            int len = 3 + random.nextInt(6);
+            for (int i = 0; i < len; i++) {
+                sb.append((char) (alphabet[0] + random.nextInt(alphabet[1] - alphabet[0] + 1)));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,190 @@
+package com.voxmagic.common.voice;
+
+import com.voxmagic.client.voice.SpellPhrases;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PhraseMatcherTest {
+    @Test
+    void longestOfOverlappingAliasesWins() {
+        PhraseMatcher matcher = PhraseMatcher.builder()
+                .add("push", "udar", false)
+                .add("shockwave", "udarnaya volna", false)
+                .build();
+        assertEquals(new PhraseMatcher.Match("shockwave", 0, 14, true), matcher.find("udarnaya volna"));
+        assertEquals(new PhraseMatcher.Match("push", 0, 4, false), matcher.find("udar"));
+        assertEquals("shockwave", matcher.findSpell("vot udarnaya volna seichas"));
+    }
+
+    @Test
+    void prefixOfLongerPhraseIsIncomplete() {
+        PhraseMatcher matcher = PhraseMatcher.builder()
+                .add("meteor", "zvezdny", false)
+                .add("meteor2", "zvezdny dozhd", false)
+                .build();
+        PhraseMatcher.Match prefix = matcher.find("zvezdny");
+        assertEquals("meteor", prefix.spellId());
+        assertFalse(prefix.complete());
+        PhraseMatcher.Match full = matcher.find("zvezdny dozhd");
+        assertEquals("meteor2", full.spellId());
+        assertTrue(full.complete());
+    }
+
+    @Test
+    void earliestMatchBeatsLongerLaterOne() {
+        PhraseMatcher matcher = PhraseMatcher.builder()
+                .add("wall", "stena", false)
+                .add("dome", "kupol nad golovoi", false)
+                .build();
+        assertEquals(new PhraseMatcher.Match("wall", 0, 5, true), matcher.find("stena kupol nad golovoi"));
+        assertEquals(new PhraseMatcher.Match("dome", 0, 17, true), matcher.find("kupol nad golovoi stena"));
+    }
+
+    @Test
+    void wordBoundariesAreRequiredUnlessSubstringAllowed() {
+        PhraseMatcher strict = PhraseMatcher.builder().add("fireball", "ogon", false).build();
+        assertNull(strict.find("ogonki"));
+        assertNull(strict.find("zaogon"));
+        assertEquals("fireball", strict.findSpell("ogon"));
+        assertEquals("fireball", strict.findSpell("bolshoi ogon tut"));
+
+        PhraseMatcher loose = PhraseMatcher.builder().add("fireball", "ogon", true).build();
+        assertEquals(new PhraseMatcher.Match("fireball", 0, 4, true), loose.find("ogonki"));
+        assertEquals(new PhraseMatcher.Match("fireball", 2, 6, true), loose.find("zaogon"));
+    }
+
+    @Test
+    void alignedMatchBeatsEarlierSubstringMatch() {
+        PhraseMatcher matcher = PhraseMatcher.builder()
+                .add("heal", "lech", true)
+                .add("web", "set", false)
+                .build();
+        // "lech" sits inside "lechu" before "set", but a whole-word hit wins.
+        assertEquals(new PhraseMatcher.Match("web", 6, 9, true), matcher.find("lechu set"));
+    }
+
+    @Test
+    void matchIsFoundThroughFailureLinks() {
+        PhraseMatcher matcher = PhraseMatcher.builder()
+                .add("a", "abcd", false)
+                .add("b", "bc", false)
+                .add("c", "b c", false)
+                .build();
+        assertNull(matcher.find("abce"));
+        assertEquals(new PhraseMatcher.Match("c", 2, 5, true), matcher.find("a b c e"));
+    }
+
+    @Test
+    void firstSpellRegisteredForAPhraseWins() {
+        PhraseMatcher matcher = PhraseMatcher.builder()
+                .add("lightning", "molniya", false)
+                .add("web", "Molniya!", false)
+                .build();
+        assertEquals(1, matcher.size());
+        assertEquals("lightning", matcher.findSpell("molniya"));
+    }
+
+    @Test
+    void phrasesAreNormalizedLikeTranscripts() {
+        // Capital yo folds to ye, and punctuation collapses to one space.
+        PhraseMatcher matcher = PhraseMatcher.builder().add("ghost", "\u0401\u0436,  \u043f\u0440\u0438\u0437\u0440\u0430\u043a!", false).build();
+        assertEquals("ghost", matcher.findSpell(PhraseText.normalize("\u0435\u0436 \u2014 \u041f\u0440\u0438\u0437\u0440\u0430\u043a")));
+        assertNull(matcher.find(""));
+        assertNull(matcher.find(null));
+    }
+
+    @Test
+    void builtinCyrillicAliasesMatch() {
+        PhraseMatcher matcher = SpellPhrases.matcher();
+        // "pautina", "iscelenie", "udarnaya volna", "zvezdnyi padenie", "perenos"
+        assertEquals("web", matcher.findSpell("\u043f\u0430\u0443\u0442\u0438\u043d\u0430"));
+        assertEquals("heal", matcher.findSpell("\u0438\u0441\u0446\u0435\u043b\u0435\u043d\u0438\u0435"));
+        assertEquals("shockwave", matcher.findSpell("\u0443\u0434\u0430\u0440\u043d\u0430\u044f \u0432\u043e\u043b\u043d\u0430"));
+        assertEquals("meteor", matcher.findSpell("\u0437\u0432\u0435\u0437\u0434\u043d\u044b\u0439 \u043f\u0430\u0434\u0435\u043d\u0438\u0435"));
+        assertEquals("teleport", matcher.findSpell("\u043f\u0435\u0440\u0435\u043d\u043e\u0441"));
+    }
+
+    /** Random dictionaries and transcripts against a brute-force scan with the same rules. */
+    @Test
+    void agreesWithBruteForceScan() {
+        Random random = new Random(1234);
+        for (int round = 0; round < 300; round++) {
+            Map<String, Phrase> phrases = new LinkedHashMap<>();
+            PhraseMatcher.Builder builder = PhraseMatcher.builder();
+            int count = 1 + random.nextInt(20);
+            for (int i = 0; i < count; i++) {
+                String phrase = words(random, 1 + random.nextInt(2));
+                boolean substring = random.nextBoolean();
+                builder.add("s" + i, phrase, substring);
+                Phrase existing = phrases.get(phrase);
+                if (existing == null) {
+                    phrases.put(phrase, new Phrase("s" + i, phrase, substring));
+                } else if (substring) {
+                    phrases.put(phrase, new Phrase(existing.spell, phrase, true));
+                }
+            }
+            PhraseMatcher matcher = builder.build();
+            List<Phrase> list = new ArrayList<>(phrases.values());
+            for (int t = 0; t < 50; t++) {
+                String text = words(random, 1 + random.nextInt(6));
+                assertEquals(bruteForce(list, text), matcher.find(text), "text '" + text + "' with " + phrases.keySet());
+            }
+        }
+    }
+
+    private record Phrase(String spell, String text, boolean substring) {}
+
+    private static PhraseMatcher.Match bruteForce(List<Phrase> phrases, String text) {
+        PhraseMatcher.Match aligned = null;
+        PhraseMatcher.Match loose = null;
+        for (Phrase p : phrases) {
+            boolean complete = true;
+            for (Phrase other : phrases) {
+                if (other.text.length() > p.text.length() && other.text.startsWith(p.text)) {
+                    complete = false;
+                }
+            }
+            for (int start = text.indexOf(p.text); start >= 0; start = text.indexOf(p.text, start + 1)) {
+                int end = start + p.text.length();
+                PhraseMatcher.Match m = new PhraseMatcher.Match(p.spell, start, end, complete);
+                boolean onWords = (start == 0 || text.charAt(start - 1) == ' ') && (end == text.length() || text.charAt(end) == ' ');
+                if (onWords) {
+                    aligned = better(aligned, m);
+                } else if (p.substring) {
+                    loose = better(loose, m);
+                }
+            }
+        }
+        return aligned != null ? aligned : loose;
+    }
+
+    private static PhraseMatcher.Match better(PhraseMatcher.Match best, PhraseMatcher.Match m) {
+        if (best == null || m.start() < best.start() || (m.start() == best.start() && m.end() > best.end())) {
+            return m;
+        }
+        return best;
+    }
+
+    /** Short words over a tiny alphabet so phrases overlap and nest often. */
+    private static String words(Random random, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int w = 0; w < count; w++) {
+            if (w > 0) sb.append(' ');
+            int len = 1 + random.nextInt(4);
+            for (int i = 0; i < len; i++) {
+                sb.append((char) ('a' + random.nextInt(3)));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,86 @@
+package com.voxmagic.server;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Layer ownership on raw state ids: 1 is the world's block, 7 and 8 are spell blocks, 9 a player's. */
+class BlockLayersTest {
+    private static final long POS = 123_456L;
+    private static final int GRASS = 1;
+    private static final int WEB = 7;
+    private static final int SLIME = 8;
+    private static final int PLAYER = 9;
+
+    @Test
+    void overlappingCastsShareOneLayerUntilTheLastExpires() {
+        BlockLayers layers = new BlockLayers();
+        layers.start(POS, GRASS, WEB);
+        BlockLayers.Layer joined = layers.join(POS, WEB);
+        assertNotNull(joined);
+        assertEquals(GRASS, joined.original);
+        assertEquals(1, layers.size());
+
+        assertNull(layers.release(POS), "first expiry keeps the block for the other cast");
+        BlockLayers.Layer last = layers.release(POS);
+        assertSame(joined, last);
+        assertEquals(GRASS, last.original);
+        assertEquals(0, layers.size());
+        assertNull(layers.release(POS));
+    }
+
+    @Test
+    void spellsSeeTheWorldBlockUnderAnIntactLayer() {
+        BlockLayers layers = new BlockLayers();
+        assertEquals(PLAYER, layers.originalState(POS, PLAYER));
+        layers.start(POS, GRASS, WEB);
+        assertEquals(GRASS, layers.originalState(POS, WEB));
+        assertEquals(PLAYER, layers.originalState(POS, PLAYER));
+    }
+
+    @Test
+    void playerChangeBreaksTheLayer() {
+        BlockLayers layers = new BlockLayers();
+        layers.start(POS, GRASS, WEB);
+        assertNull(layers.join(POS, PLAYER));
+
+        // The next cast writes over the player's block; the earlier owner carries over.
+        layers.start(POS, PLAYER, SLIME);
+        assertNull(layers.release(POS));
+        BlockLayers.Layer last = layers.release(POS);
+        assertEquals(PLAYER, last.original);
+        assertEquals(SLIME, last.placed);
+    }
+
+    @Test
+    void layerExpiringAfterAPlayerChangeIsNotIntact() {
+        BlockLayers layers = new BlockLayers();
+        layers.start(POS, GRASS, WEB);
+        BlockLayers.Layer last = layers.release(POS);
+        assertFalse(last.isIntact(PLAYER));
+        assertTrue(last.isIntact(WEB));
+    }
+
+    @Test
+    void replayedLayersCheckThePlacedState() {
+        BlockLayers layers = new BlockLayers();
+        layers.replay(POS, GRASS, WEB);
+        layers.replay(POS, GRASS, SLIME);
+        assertNull(layers.join(POS, WEB), "the newest cast's block is the one on top");
+        assertNull(layers.join(POS, GRASS));
+        assertNotNull(layers.join(POS, SLIME));
+        assertEquals(GRASS, layers.originalState(POS, SLIME));
+        assertEquals(PLAYER, layers.originalState(POS, PLAYER));
+
+        assertNull(layers.release(POS));
+        assertNull(layers.release(POS));
+        BlockLayers.Layer last = layers.release(POS);
+        assertFalse(last.isIntact(PLAYER));
+        assertTrue(last.isIntact(SLIME));
+    }
+}
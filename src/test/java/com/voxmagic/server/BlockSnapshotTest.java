@@ -0,0 +1,64 @@
+package com.voxmagic.server;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Retained size of a trimmed snapshot, measured with JOL. The old restore kept a
+ * {@code HashMap<BlockPos, BlockState>} at 63-70 bytes per block; the arrays cost 12 bytes per
+ * block plus one object and two array headers.
+ */
+class BlockSnapshotTest {
+    /** Object header, two references and the size field, plus two array headers and padding. */
+    private static final long FIXED_OVERHEAD = 128;
+
+    @Test
+    void trimmedSnapshotCostsTwelveBytesPerBlock() {
+        for (int blocks : new int[]{9, 12, 80, 120, 1000}) {
+            BlockSnapshot snapshot = filled(new BlockSnapshot(4), blocks).trim();
+            long bytes = GraphLayout.parseInstance(snapshot).totalSize();
+            assertTrue(bytes <= 12L * blocks + FIXED_OVERHEAD, blocks + " blocks retain " + bytes + " bytes");
+            assertTrue(bytes >= 12L * blocks, blocks + " blocks retain " + bytes + " bytes");
+        }
+    }
+
+    @Test
+    void typicalSpellShapesStayFarBelowTheOldMap() {
+        // Web (9) and wall (80) restores, against the old map's ~63 bytes per block.
+        assertTrue(bytesPerBlock(9) < 20.0, "web: " + bytesPerBlock(9));
+        assertTrue(bytesPerBlock(80) < 13.0, "wall: " + bytesPerBlock(80));
+    }
+
+    @Test
+    void trimDropsSpareCapacity() {
+        BlockSnapshot snapshot = filled(new BlockSnapshot(256), 80);
+        long before = GraphLayout.parseInstance(snapshot).totalSize();
+        long after = GraphLayout.parseInstance(snapshot.trim()).totalSize();
+        assertEquals(12L * (256 - 80), before - after);
+    }
+
+    @Test
+    void growthKeepsEveryEntry() {
+        BlockSnapshot snapshot = filled(new BlockSnapshot(1), 100).trim();
+        assertEquals(100, snapshot.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i * 31L, snapshot.position(i));
+            assertEquals(i % 7, snapshot.stateId(i));
+        }
+    }
+
+    private static double bytesPerBlock(int blocks) {
+        BlockSnapshot snapshot = filled(new BlockSnapshot(blocks), blocks).trim();
+        return GraphLayout.parseInstance(snapshot).totalSize() / (double) blocks;
+    }
+
+    private static BlockSnapshot filled(BlockSnapshot snapshot, int blocks) {
+        for (int i = 0; i < blocks; i++) {
+            snapshot.add(i * 31L, i % 7);
+        }
+        return snapshot;
+    }
+}
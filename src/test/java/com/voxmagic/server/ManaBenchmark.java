@@ -0,0 +1,114 @@
+package com.voxmagic.server;
+
+import com.voxmagic.common.config.ModConfig;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.IntConsumer;
+
+/**
+ * Per-tick mana cost with many players online: the old per-player {@code HashMap<UUID, ...>}
+ * walk with a double carry versus {@link ManaStore}, whose slots are only read on sync ticks. Both
+ * sides make the same reads every {@value #SYNC_INTERVAL} ticks and see the same casts; packet
+ * sending is left out. Plain Java, no server needed: {@code ./gradlew manaBenchmark}.
+ */
+public final class ManaBenchmark {
+    private static final int WARMUP_TICKS = 20_000;
+    private static final int MEASURED_TICKS = 5_000;
+    private static final int SYNC_INTERVAL = 10;
+    private static final double CASTS_PER_PLAYER_TICK = 1.0 / 200;
+
+    private ManaBenchmark() {}
+
+    public static void main(String[] args) {
+        System.out.println(String.format(Locale.ROOT, "%10s %20s %20s", "players", "hashmap us/tick", "store us/tick"));
+        for (int players : new int[]{50, 500, 2_000}) {
+            UUID[] ids = new UUID[players];
+            Random random = new Random(42);
+            for (int i = 0; i < players; i++) {
+                ids[i] = new UUID(random.nextLong(), random.nextLong());
+            }
+            long[] sink = new long[1];
+            double old = hashMap(ids, sink);
+            double store = store(ids, sink);
+            System.out.println(String.format(Locale.ROOT, "%,10d %20.2f %20.2f", players, old, store));
+        }
+    }
+
+    private static double hashMap(UUID[] ids, long[] sink) {
+        Map<UUID, OldState> states = new HashMap<>();
+        Random random = new Random(7);
+        long total = 0L;
+        for (int tick = 0; tick < WARMUP_TICKS + MEASURED_TICKS; tick++) {
+            long start = System.nanoTime();
+            for (UUID id : ids) {
+                OldState s = states.computeIfAbsent(id, k -> new OldState());
+                s.tick();
+                if (tick % SYNC_INTERVAL == 0) {
+                    sink[0] += s.mana;
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            casts(ids.length, random, index -> {
+                OldState s = states.get(ids[index]);
+                if (s != null && s.mana >= 25) {
+                    s.mana -= 25;
+                }
+            });
+            if (tick >= WARMUP_TICKS) {
+                total += elapsed;
+            }
+        }
+        return total / 1e3 / MEASURED_TICKS;
+    }
+
+    private static double store(UUID[] ids, long[] sink) {
+        ManaStore store = new ManaStore();
+        for (UUID id : ids) {
+            store.slot(id, 0L);
+        }
+        Random random = new Random(7);
+        long total = 0L;
+        for (int tick = 0; tick < WARMUP_TICKS + MEASURED_TICKS; tick++) {
+            long now = tick;
+            long start = System.nanoTime();
+            if (now % SYNC_INTERVAL == 0) {
+                for (int slot = 0; slot < store.size(); slot++) {
+                    sink[0] += store.mana(slot, now);
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            casts(ids.length, random, index -> store.trySpend(store.slot(ids[index], now), now, 25));
+            if (tick >= WARMUP_TICKS) {
+                total += elapsed;
+            }
+        }
+        return total / 1e3 / MEASURED_TICKS;
+    }
+
+    /** Cast traffic runs between ticks in both variants and is not measured. */
+    private static void casts(int players, Random random, IntConsumer cast) {
+        int count = (int) (players * CASTS_PER_PLAYER_TICK) + (random.nextDouble() < (players * CASTS_PER_PLAYER_TICK) % 1 ? 1 : 0);
+        for (int i = 0; i < count; i++) {
+            cast.accept(random.nextInt(players));
+        }
+    }
+
+    /** The pre-{@link ManaStore} per-player state, ticked every server tick. */
+    private static final class OldState {
+        int mana = ModConfig.INSTANCE.mana.max;
+        double carry = 0;
+
+        void tick() {
+            carry += ModConfig.INSTANCE.mana.regen_per_sec / 20.0;
+            int add = (int) carry;
+            if (add > 0) {
+                mana = Math.min(ModConfig.INSTANCE.mana.max, mana + add);
+                carry -= add;
+            }
+        }
+    }
+}
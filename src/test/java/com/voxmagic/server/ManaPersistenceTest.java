@@ -0,0 +1,48 @@
+package com.voxmagic.server;
+
+import com.voxmagic.common.config.ModConfig;
+import com.voxmagic.network.NetworkInit;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/** Defaults: 100 mana, 5 per second, so an empty pool refills in 400 ticks. */
+class ManaPersistenceTest {
+    private static final long MAX = 100L * NetworkInit.MANA_SCALE;
+
+    @Test
+    void evictsOnlyPlayersBackToDefaults() {
+        ModConfig.INSTANCE = ModConfig.defaults();
+        UUID refilled = UUID.randomUUID();
+        UUID draining = UUID.randomUUID();
+        UUID cooling = UUID.randomUUID();
+        ManaPersistence.put(refilled, new ManaPersistence.Saved(0L, 1_000L, 0L));
+        ManaPersistence.put(draining, new ManaPersistence.Saved(0L, 1_200L, 0L));
+        ManaPersistence.put(cooling, new ManaPersistence.Saved(MAX, 1_000L, 2_000L));
+
+        ManaPersistence.evictRecovered(1_399L);
+        assertEquals(3, sizeOf(refilled, draining, cooling));
+
+        ManaPersistence.evictRecovered(1_400L);
+        assertNull(ManaPersistence.get(refilled));
+        assertNotNull(ManaPersistence.get(draining));
+        assertNotNull(ManaPersistence.get(cooling));
+
+        ManaPersistence.evictRecovered(2_000L);
+        assertEquals(0, sizeOf(refilled, draining, cooling));
+    }
+
+    private static int sizeOf(UUID... players) {
+        int count = 0;
+        for (UUID player : players) {
+            if (ManaPersistence.get(player) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
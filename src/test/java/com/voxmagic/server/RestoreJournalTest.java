@@ -0,0 +1,173 @@
+package com.voxmagic.server;
+
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.util.Identifier;
+import net.minecraft.world.World;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Writes, tears, reopens and compacts a journal in a temp dir; no server or registries needed. */
+class RestoreJournalTest {
+    private static final int STATES = 1000;
+    private static final RegistryKey<World> NETHER = RegistryKey.of(RegistryKeys.WORLD, Identifier.of("minecraft", "the_nether"));
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void closeJournal() {
+        RestoreJournal.close();
+    }
+
+    @Test
+    void unfinishedRestoresAreReplayed() {
+        Path file = dir.resolve("journal.bin");
+        assertEquals(List.of(), RestoreJournal.open(file, STATES));
+        long first = append(500L, 70, 3, 0);
+        long second = append(600L, 80, 5, 10);
+        long third = append(700L, 90, 2, 20);
+        RestoreJournal.complete(second);
+        RestoreJournal.close();
+
+        List<RestoreJournal.Entry> pending = RestoreJournal.open(file, STATES);
+        assertEquals(2, pending.size());
+        assertEntry(pending.get(0), first, 500L, 70, 3, 0);
+        assertEntry(pending.get(1), third, 700L, 90, 2, 20);
+        assertTrue(append(800L, 10, 1, 0) > third, "ids continue after the journal's");
+    }
+
+    @Test
+    void doneOnlyRemovesItsOwnAdd() {
+        Path file = dir.resolve("journal.bin");
+        RestoreJournal.open(file, STATES);
+        long kept = append(100L, 20, 4, 0);
+        RestoreJournal.complete(kept + 100);
+        long done = append(200L, 20, 4, 40);
+        RestoreJournal.complete(done);
+        RestoreJournal.complete(done);
+        RestoreJournal.close();
+
+        List<RestoreJournal.Entry> pending = RestoreJournal.open(file, STATES);
+        assertEquals(1, pending.size());
+        assertEntry(pending.get(0), kept, 100L, 20, 4, 0);
+    }
+
+    @Test
+    void tornFinalRecordIsDropped() throws IOException {
+        Path file = dir.resolve("journal.bin");
+        RestoreJournal.open(file, STATES);
+        long whole = append(100L, 20, 6, 0);
+        append(200L, 20, 6, 60);
+        RestoreJournal.close();
+
+        // Cut the second ADD in the middle of its state ids, as a crash mid-write would.
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 7);
+        }
+        List<RestoreJournal.Entry> pending = RestoreJournal.open(file, STATES);
+        assertEquals(1, pending.size());
+        assertEntry(pending.get(0), whole, 100L, 20, 6, 0);
+        long next = append(300L, 20, 1, 0);
+        RestoreJournal.close();
+
+        // Reopening compacted the torn tail away, so later appends are readable again.
+        pending = RestoreJournal.open(file, STATES);
+        assertEquals(2, pending.size());
+        assertEquals(next, pending.get(1).id());
+    }
+
+    @Test
+    void openRewritesOnlyLiveRecords() throws IOException {
+        Path file = dir.resolve("journal.bin");
+        RestoreJournal.open(file, STATES);
+        for (int i = 0; i < 4; i++) {
+            RestoreJournal.complete(append(100L, 20, 50, i));
+        }
+        long live = append(100L, 20, 50, 9);
+        RestoreJournal.close();
+        long grown = Files.size(file);
+
+        RestoreJournal.open(file, STATES);
+        RestoreJournal.close();
+        long compacted = Files.size(file);
+        assertTrue(compacted < grown / 4, grown + " -> " + compacted);
+        assertEquals(live, RestoreJournal.open(file, STATES).get(0).id());
+    }
+
+    @Test
+    void finishedRecordsAreCompactedWhileRunning() throws IOException {
+        Path file = dir.resolve("journal.bin");
+        RestoreJournal.open(file, STATES);
+        long[] ids = new long[12];
+        for (int i = 0; i < ids.length; i++) {
+            // ~16 KiB each, so the finished ones pass the 64 KiB compaction floor.
+            ids[i] = append(100L, 20, 1000, i);
+        }
+        RestoreJournal.close();
+        long addBytes = Files.size(file);
+
+        RestoreJournal.open(file, STATES);
+        for (int i = 0; i < ids.length - 1; i++) {
+            RestoreJournal.complete(ids[i]);
+        }
+        RestoreJournal.close();
+        // Compacted once finished records outweighed live ones, about halfway through.
+        assertTrue(Files.size(file) < addBytes * 3 / 5, "journal still " + Files.size(file) + " of " + addBytes + " bytes");
+        List<RestoreJournal.Entry> pending = RestoreJournal.open(file, STATES);
+        assertEquals(1, pending.size());
+        assertEntry(pending.get(0), ids[ids.length - 1], 100L, 20, 1000, ids.length - 1);
+    }
+
+    @Test
+    void changedStateRegistryDiscardsTheJournal() {
+        Path file = dir.resolve("journal.bin");
+        RestoreJournal.open(file, STATES);
+        append(100L, 20, 3, 0);
+        RestoreJournal.close();
+
+        assertEquals(List.of(), RestoreJournal.open(file, STATES + 1));
+        RestoreJournal.close();
+        assertEquals(List.of(), RestoreJournal.open(file, STATES + 1));
+    }
+
+    /** Restores {@code n} blocks; the ids derive from {@code seed} so entries can be told apart. */
+    private static long append(long deadline, int ticks, int n, int seed) {
+        BlockSnapshot blocks = new BlockSnapshot(n);
+        int[] placed = new int[n];
+        for (int i = 0; i < n; i++) {
+            blocks.add(position(seed, i), (seed + i) % STATES);
+            placed[i] = (seed + i + 1) % STATES;
+        }
+        return RestoreJournal.append(NETHER, deadline, ticks, blocks, placed);
+    }
+
+    private static long position(int seed, int i) {
+        return (seed * 1000L + i) * 31L;
+    }
+
+    private static void assertEntry(RestoreJournal.Entry entry, long id, long deadline, int ticks, int n, int seed) {
+        assertEquals(id, entry.id());
+        assertEquals(NETHER, entry.dimension());
+        assertEquals(deadline, entry.deadline());
+        assertEquals(ticks, entry.ticks());
+        assertEquals(n, entry.blocks().size());
+        assertEquals(n, entry.placed().length);
+        for (int i = 0; i < n; i++) {
+            assertEquals(position(seed, i), entry.blocks().position(i));
+            assertEquals((seed + i) % STATES, entry.blocks().stateId(i));
+            assertEquals((seed + i + 1) % STATES, entry.placed()[i]);
+        }
+    }
+}
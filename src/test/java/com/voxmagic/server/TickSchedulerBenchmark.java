@@ -0,0 +1,89 @@
+package com.voxmagic.server;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Per-tick cost of the old countdown loop (every pending entry decremented every tick) versus
+ * {@link TimingWheel} at a constant population of pending effects. Each fired entry is
+ * replaced so the population stays flat; the wheel's cost should follow the due count only. Plain Java, no server needed:
+ * {@code ./gradlew tickBenchmark}.
+ */
+public final class TickSchedulerBenchmark {
+    private static final int WARMUP_TICKS = 2000;
+    private static final int MEASURED_TICKS = 2000;
+
+    private TickSchedulerBenchmark() {}
+
+    public static void main(String[] args) {
+        System.out.println(String.format(Locale.ROOT, "%10s %10s %18s %18s", "pending", "due/tick", "countdown us/tick", "wheel us/tick"));
+        for (int pending : new int[]{1_000, 10_000, 50_000, 100_000}) {
+            double countdown = countdown(pending);
+            long[] fired = new long[1];
+            double wheel = wheel(pending, fired);
+            System.out.println(String.format(Locale.ROOT, "%,10d %10.1f %18.2f %18.2f", pending, fired[0] / (double) MEASURED_TICKS, countdown, wheel));
+        }
+    }
+
+    /** Lifetimes spread over a few seconds to a few minutes, like restores and ghosts. */
+    private static int lifetime(Random random) {
+        return 20 + random.nextInt(20 * 120);
+    }
+
+    private static double countdown(int pending) {
+        Random random = new Random(42);
+        List<int[]> tasks = new ArrayList<>();
+        for (int i = 0; i < pending; i++) {
+            tasks.add(new int[]{lifetime(random)});
+        }
+        long total = 0L;
+        for (int tick = 0; tick < WARMUP_TICKS + MEASURED_TICKS; tick++) {
+            long start = System.nanoTime();
+            Iterator<int[]> it = tasks.iterator();
+            int fired = 0;
+            while (it.hasNext()) {
+                if (--it.next()[0] <= 0) {
+                    it.remove();
+                    fired++;
+                }
+            }
+            for (int i = 0; i < fired; i++) {
+                tasks.add(new int[]{lifetime(random)});
+            }
+            if (tick >= WARMUP_TICKS) {
+                total += System.nanoTime() - start;
+            }
+        }
+        return total / 1e3 / MEASURED_TICKS;
+    }
+
+    private static double wheel(int pending, long[] fired) {
+        Random random = new Random(42);
+        TimingWheel<Object> wheel = new TimingWheel<>();
+        Consumer<Object> refill = new Consumer<>() {
+            @Override
+            public void accept(Object ignored) {
+                fired[0]++;
+                wheel.schedule(lifetime(random), this);
+            }
+        };
+        for (int i = 0; i < pending; i++) {
+            wheel.schedule(lifetime(random), refill);
+        }
+        long total = 0L;
+        for (int tick = 0; tick < WARMUP_TICKS + MEASURED_TICKS; tick++) {
+            long start = System.nanoTime();
+            wheel.advance(null);
+            if (tick >= WARMUP_TICKS) {
+                total += System.nanoTime() - start;
+            } else {
+                fired[0] = 0L;
+            }
+        }
+        return total / 1e3 / MEASURED_TICKS;
+    }
+}